@@ -0,0 +1,216 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Sparse character grid stored off-heap in 64x64 chunks. A chunk is only
+ * allocated the first time a cell in it is written; reading a cell in a chunk
+ * that was never written returns the empty value. Chunks are carved out of
+ * large direct-buffer slabs, so the heap only holds the chunk directory.
+ * Released chunks go on a free list and are handed out again before the
+ * slabs grow.
+ *
+ * Reads take no lock: they check an optimistic stamp afterwards and only read
+ * again under the read lock if a chunk was released meanwhile, so a reader
+ * never returns a cell from a chunk that was handed on to another block.
+ * Writing into an allocated chunk shares the read lock; allocating and
+ * releasing chunks take the write lock.
+ */
+public class ChunkedGrid {
+    private static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int CHUNKS_PER_SLAB = 256;
+    private static final byte[] BLANK_CHUNK = new byte[CHUNK_BYTES];
+    private static final int NO_CHUNK = -1;
+
+    private final char empty;
+    private final StampedLock lock;
+    private volatile Directory directory;
+    private volatile ByteBuffer[] slabs;
+    private int[] freeChunks;
+    private int freeCount;
+    private int chunkCount;
+
+    public ChunkedGrid(char empty) {
+        this.empty = empty;
+        this.lock = new StampedLock();
+        this.directory = new Directory(16);
+        this.slabs = new ByteBuffer[0];
+        this.freeChunks = new int[16];
+    }
+
+    public char get(int x, int y) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            char cell = read(x, y);
+            if (lock.validate(stamp)) {
+                return cell;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(x, y);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Symbols are stored as single bytes, so only Latin-1 characters survive the round trip.
+    public void set(int x, int y, char symbol) {
+        long key = chunkKey(x, y);
+        long stamp = lock.readLock();
+        try {
+            int chunk = directory.find(key);
+            if (chunk == NO_CHUNK) {
+                long write = lock.tryConvertToWriteLock(stamp);
+                if (write == 0) {
+                    lock.unlockRead(stamp);
+                    write = lock.writeLock();
+                }
+                stamp = write;
+                chunk = directory.find(key);
+                if (chunk == NO_CHUNK) {
+                    chunk = allocateChunk();
+                    insert(key, chunk);
+                }
+            }
+            slabs[chunk / CHUNKS_PER_SLAB].put(offset(chunk, x, y), (byte) symbol);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    // Empties the chunk holding (x, y) and keeps its memory for the next chunk that is allocated.
+    public void release(int x, int y) {
+        long stamp = lock.writeLock();
+        try {
+            int chunk = directory.remove(chunkKey(x, y));
+            if (chunk == NO_CHUNK) {
+                return;
+            }
+            slabs[chunk / CHUNKS_PER_SLAB].put((chunk % CHUNKS_PER_SLAB) * CHUNK_BYTES, BLANK_CHUNK);
+            if (freeCount == freeChunks.length) {
+                freeChunks = Arrays.copyOf(freeChunks, freeCount * 2);
+            }
+            freeChunks[freeCount++] = chunk;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // May run against a directory or slab list caught mid-change; get() discards the cell if it did.
+    private char read(int x, int y) {
+        int chunk = directory.find(chunkKey(x, y));
+        ByteBuffer[] current = slabs;
+        if (chunk < 0 || chunk / CHUNKS_PER_SLAB >= current.length) {
+            return empty;
+        }
+        byte cell = current[chunk / CHUNKS_PER_SLAB].get(offset(chunk, x, y));
+        return cell == 0 ? empty : (char) (cell & 0xff);
+    }
+
+    // Called with the write lock held.
+    private int allocateChunk() {
+        if (freeCount > 0) {
+            return freeChunks[--freeCount];
+        }
+        int chunk = chunkCount++;
+        if (chunk / CHUNKS_PER_SLAB == slabs.length) {
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[slabs.length] = ByteBuffer.allocateDirect(CHUNKS_PER_SLAB * CHUNK_BYTES);
+            slabs = grown;
+        }
+        return chunk;
+    }
+
+    // Called with the write lock held. A full directory is rebuilt at twice the size and swapped in whole.
+    private void insert(long key, int chunk) {
+        Directory current = directory;
+        if ((current.size + 1) * 2 > current.keys.length) {
+            Directory grown = new Directory(current.keys.length * 2);
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                if (current.chunks[slot] != NO_CHUNK) {
+                    grown.put(current.keys[slot], current.chunks[slot]);
+                }
+            }
+            directory = grown;
+            current = grown;
+        }
+        current.put(key, chunk);
+    }
+
+    private static long chunkKey(int x, int y) {
+        return Coordinates.pack(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+    }
+
+    private static int offset(int chunk, int x, int y) {
+        return (chunk % CHUNKS_PER_SLAB) * CHUNK_BYTES + (y & CHUNK_MASK) * CHUNK_SIZE + (x & CHUNK_MASK);
+    }
+
+    // Open addressing on the packed chunk coordinate, as in RoomIndex, kept at most half full.
+    private static final class Directory {
+        private final long[] keys;
+        private final int[] chunks;
+        private final int mask;
+        private int size;
+
+        Directory(int capacity) {
+            keys = new long[capacity];
+            chunks = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(chunks, NO_CHUNK);
+        }
+
+        // The probe count is bounded so a lock-free reader cannot spin on a table that is being rearranged.
+        int find(long key) {
+            int slot = RoomIndex.hash(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int chunk = chunks[slot];
+                if (chunk == NO_CHUNK) {
+                    return NO_CHUNK;
+                }
+                if (keys[slot] == key) {
+                    return chunk;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_CHUNK;
+        }
+
+        void put(long key, int chunk) {
+            int slot = RoomIndex.hash(key) & mask;
+            while (chunks[slot] != NO_CHUNK) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            chunks[slot] = chunk;
+            size++;
+        }
+
+        // Later entries of the probe run are shifted back into the hole, so no lookup stops short of them.
+        int remove(long key) {
+            int slot = RoomIndex.hash(key) & mask;
+            while (chunks[slot] != NO_CHUNK && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            int chunk = chunks[slot];
+            if (chunk == NO_CHUNK) {
+                return NO_CHUNK;
+            }
+            int hole = slot;
+            for (int next = (hole + 1) & mask; chunks[next] != NO_CHUNK; next = (next + 1) & mask) {
+                int home = RoomIndex.hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    chunks[hole] = chunks[next];
+                    hole = next;
+                }
+            }
+            chunks[hole] = NO_CHUNK;
+            size--;
+            return chunk;
+        }
+    }
+}
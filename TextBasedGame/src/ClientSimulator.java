@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Opens many loopback connections from a single selector thread. The first
+ * activeClients connections play a short scripted loop and record the latency
+ * of every command; the rest connect, read the intro and then sit idle.
+ */
+public class ClientSimulator {
+    private static final byte[] PROMPT = NioConnection.PROMPT.getBytes(StandardCharsets.UTF_8);
+    private static final String[] SCRIPT = {"look", "move north", "move south", "map", "hint", "score"};
+    private static final int CONNECT_BATCH = 500;
+
+    private final InetSocketAddress address;
+    private final int clients;
+    private final int activeClients;
+    private final int commandsPerClient;
+    private final long[] latencies;
+    private int localAddresses;
+    private Runnable beforeClose;
+    private int latencyCount;
+    private int connected;
+    private int finished;
+
+    public ClientSimulator(InetSocketAddress address, int clients, int activeClients, int commandsPerClient) {
+        this.address = address;
+        this.clients = clients;
+        this.activeClients = Math.min(activeClients, clients);
+        this.commandsPerClient = commandsPerClient;
+        this.latencies = new long[this.activeClients * commandsPerClient];
+    }
+
+    // Spreads client sockets over 127.0.0.1..127.0.0.n so more than one
+    // ephemeral port range's worth of connections can be opened over loopback.
+    public void setLocalAddresses(int count) {
+        this.localAddresses = count;
+    }
+
+    // Runs once every connection is open and every active client is done, before anything is closed.
+    public void setBeforeClose(Runnable beforeClose) {
+        this.beforeClose = beforeClose;
+    }
+
+    public SimulationResult run() throws IOException {
+        long started = System.nanoTime();
+        Selector selector = Selector.open();
+        int opened = 0;
+
+        try {
+            while (finished < activeClients || connected < clients) {
+                // Connections are opened in batches so the server's accept backlog is not flooded.
+                if (opened < clients && opened - connected < CONNECT_BATCH) {
+                    int batchEnd = Math.min(clients, opened + CONNECT_BATCH);
+                    for (; opened < batchEnd; opened++) {
+                        SocketChannel channel = SocketChannel.open();
+                        channel.configureBlocking(false);
+                        if (localAddresses > 1) {
+                            channel.bind(new InetSocketAddress("127.0.0." + (1 + opened % localAddresses), 0));
+                        }
+                        channel.connect(address);
+                        channel.register(selector, SelectionKey.OP_CONNECT, new SimClient(opened < activeClients));
+                    }
+                }
+
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+            if (beforeClose != null) {
+                beforeClose.run();
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+
+        long elapsed = System.nanoTime() - started;
+        return new SimulationResult(connected, latencyCount, elapsed, Arrays.copyOf(latencies, latencyCount));
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        SimClient client = (SimClient) key.attachment();
+
+        if (key.isConnectable()) {
+            channel.finishConnect();
+            connected++;
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+
+        int read = channel.read(client.buffer);
+        if (read < 0) {
+            throw new IOException("Server closed a simulated connection");
+        }
+        client.buffer.flip();
+        boolean prompted = false;
+        while (client.buffer.hasRemaining()) {
+            prompted |= client.matchPrompt(client.buffer.get());
+        }
+        client.buffer.clear();
+
+        if (prompted) {
+            onPrompt(channel, client);
+        }
+    }
+
+    private void onPrompt(SocketChannel channel, SimClient client) throws IOException {
+        if (!client.active) {
+            return;
+        }
+        if (client.sentAt != 0) {
+            latencies[latencyCount++] = System.nanoTime() - client.sentAt;
+        }
+        if (client.sent == commandsPerClient) {
+            client.sentAt = 0;
+            finished++;
+            client.active = false;
+            return;
+        }
+
+        String command = SCRIPT[client.sent % SCRIPT.length] + "\n";
+        client.sent++;
+        client.sentAt = System.nanoTime();
+        channel.write(ByteBuffer.wrap(command.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int active = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int commands = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+        int localAddresses = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        boolean hold = args.length > 6 && args[6].equals("hold");
+
+        ClientSimulator simulator = new ClientSimulator(new InetSocketAddress(host, port), clients, active, commands);
+        simulator.setLocalAddresses(localAddresses);
+        if (hold) {
+            // Lets ServerBenchmark measure the server while every connection is still open.
+            simulator.setBeforeClose(() -> {
+                System.out.println(ServerBenchmark.READY);
+                try {
+                    System.in.read();
+                } catch (IOException e) {
+                    // Closing stdin also means go ahead.
+                }
+            });
+        }
+        System.out.println(simulator.run());
+    }
+
+    private static class SimClient {
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        private boolean active;
+        private int promptMatched;
+        private int sent;
+        private long sentAt;
+
+        SimClient(boolean active) {
+            this.active = active;
+        }
+
+        boolean matchPrompt(byte b) {
+            if (b == PROMPT[promptMatched]) {
+                promptMatched++;
+            } else {
+                promptMatched = b == PROMPT[0] ? 1 : 0;
+            }
+            if (promptMatched == PROMPT.length) {
+                promptMatched = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+public interface CommandHandler {
+
+    void execute(GameSession session, CommandParser command);
+}
@@ -0,0 +1,285 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the input lines every session has accepted, shared by
+ * all sessions in the process. Appends only queue the record; a background
+ * thread writes whatever has queued up in one gathering write and forces it
+ * to disk once per group, so many commands share a single fsync.
+ *
+ * Each record is [int length][int crc32][short id length][id][line], all
+ * UTF-8. A checkpoint record has CHECKPOINT set in the id length and holds a
+ * SessionSnapshot instead of a line; it replaces everything the session
+ * logged before it. On open the log is scanned, a torn record at the tail is
+ * cut off, and each session's last checkpoint and the lines after it are kept
+ * so sessions can be rebuilt by replay. If checkpoints made older records
+ * dead, the file is rewritten with just the live ones, so a journal only
+ * grows with what a restart needs.
+ */
+public class CommandJournal implements Closeable {
+    private static final int HEADER_BYTES = 8;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5;
+    private static final int MAX_GROUP_BYTES = 1 << 20;
+    private static final int CHECKPOINT = 0x8000;
+
+    private final FileChannel channel;
+    private final long flushIntervalMillis;
+    private final LinkedHashMap<String, List<String>> recovered;
+    private final LinkedHashMap<String, byte[]> checkpoints;
+    private long deadRecords;
+    private final Object lock = new Object();
+    private final Thread writer;
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private int pendingBytes;
+    private long appended;
+    private long durable;
+    private volatile boolean running;
+    private IOException failure;
+
+    public CommandJournal(Path file) throws IOException {
+        this(file, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public CommandJournal(Path file, long flushIntervalMillis) throws IOException {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.recovered = new LinkedHashMap<>();
+        this.checkpoints = new LinkedHashMap<>();
+
+        FileChannel opened = open(file);
+        long validEnd = scan(opened);
+        if (deadRecords > 0) {
+            opened.close();
+            compact(file);
+            opened = open(file);
+            validEnd = opened.size();
+        }
+        opened.truncate(validEnd);
+        opened.position(validEnd);
+        this.channel = opened;
+
+        running = true;
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // The lines each session had accepted since its last checkpoint when the journal was opened, in order.
+    public List<String> getRecoveredLines(String sessionId) {
+        return recovered.getOrDefault(sessionId, List.of());
+    }
+
+    // The session's last checkpoint when the journal was opened, or null if it never wrote one.
+    public byte[] getCheckpoint(String sessionId) {
+        return checkpoints.get(sessionId);
+    }
+
+    public Iterable<String> getRecoveredSessions() {
+        return recovered.keySet();
+    }
+
+    public void append(String sessionId, String line) {
+        enqueue(record(sessionId, line.getBytes(StandardCharsets.UTF_8), false));
+    }
+
+    // Everything the session logged before this snapshot is dead once the checkpoint is on disk.
+    public void checkpoint(String sessionId, byte[] snapshot) {
+        enqueue(record(sessionId, snapshot, true));
+    }
+
+    private static ByteBuffer record(String sessionId, byte[] payload, boolean checkpoint) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length >= CHECKPOINT) {
+            throw new IllegalArgumentException("Session id is too long for the journal: " + sessionId);
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + 2 + id.length + payload.length);
+        record.putInt(2 + id.length + payload.length);
+        record.putInt(0);
+        record.putShort((short) (id.length | (checkpoint ? CHECKPOINT : 0))).put(id).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, record.capacity() - HEADER_BYTES);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private void enqueue(ByteBuffer record) {
+        synchronized (lock) {
+            pending.add(record);
+            pendingBytes += record.remaining();
+            appended++;
+            if (pendingBytes >= MAX_GROUP_BYTES) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Blocks until everything appended before this call is on disk.
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            lock.notifyAll();
+            while (durable < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<ByteBuffer> group;
+            long target;
+            synchronized (lock) {
+                if (pending.isEmpty() && running) {
+                    try {
+                        lock.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                group = pending;
+                target = appended;
+                pending = new ArrayList<>();
+                pendingBytes = 0;
+            }
+
+            try {
+                ByteBuffer[] buffers = group.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (lock) {
+                durable = target;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Reads every intact record and returns the offset just past the last one.
+    private long scan(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        CRC32 crc = new CRC32();
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 2 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            payload.flip();
+            int flags = payload.getShort() & 0xFFFF;
+            int idLength = flags & ~CHECKPOINT;
+            if (2 + idLength > length) {
+                break;
+            }
+            String id = new String(payload.array(), 2, idLength, StandardCharsets.UTF_8);
+            List<String> lines = recovered.computeIfAbsent(id, key -> new ArrayList<>());
+            if ((flags & CHECKPOINT) != 0) {
+                byte[] previous = checkpoints.put(id, Arrays.copyOfRange(payload.array(), 2 + idLength, length));
+                deadRecords += lines.size() + (previous == null ? 0 : 1);
+                lines.clear();
+            } else {
+                lines.add(new String(payload.array(), 2 + idLength, length - 2 - idLength, StandardCharsets.UTF_8));
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    // Writes each session's checkpoint and the lines after it beside the journal, then swaps it in.
+    private void compact(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(temporary);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (var session : recovered.entrySet()) {
+                byte[] checkpoint = checkpoints.get(session.getKey());
+                if (checkpoint != null) {
+                    writeFully(out, record(session.getKey(), checkpoint, true));
+                }
+                for (String line : session.getValue()) {
+                    writeFully(out, record(session.getKey(), line.getBytes(StandardCharsets.UTF_8), false));
+                }
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Splits an input line into a verb and an argument inside a reused char
+ * buffer, lower-casing and trimming in place. The verb and argument are
+ * resolved through CommandTrie or ItemRegistry directly from the buffer; a
+ * String is only built when a message needs to echo the argument back.
+ */
+public class CommandParser {
+    public static final int MAX_LENGTH = 1024;
+
+    private char[] buffer = new char[32];
+    private int verbEnd;
+    private int argumentStart;
+    private int length;
+    private String argument;
+    private boolean tooLong;
+
+    // A line longer than MAX_LENGTH once trimmed is not parsed at all, rather than cut to a different command.
+    public void parse(CharSequence line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+
+        tooLong = end - start > MAX_LENGTH;
+        if (tooLong) {
+            length = 0;
+            verbEnd = 0;
+            argumentStart = 0;
+            argument = null;
+            return;
+        }
+        length = end - start;
+        if (length > buffer.length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        verbEnd = length;
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(line.charAt(start + i));
+            buffer[i] = c;
+            if (c == ' ' && verbEnd == length) {
+                verbEnd = i;
+            }
+        }
+        argumentStart = verbEnd == length ? length : verbEnd + 1;
+        argument = null;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public boolean isTooLong() {
+        return tooLong;
+    }
+
+    public <T> T resolveVerb(CommandTrie<T> verbs) {
+        return verbs.find(buffer, 0, verbEnd);
+    }
+
+    public boolean hasArgument() {
+        return argumentStart < length;
+    }
+
+    public <T> T resolveArgument(CommandTrie<T> words) {
+        return words.find(buffer, argumentStart, length - argumentStart);
+    }
+
+    public int argumentId() {
+        return ItemRegistry.find(buffer, argumentStart, length - argumentStart);
+    }
+
+    public String argument() {
+        if (argument == null) {
+            argument = new String(buffer, argumentStart, length - argumentStart);
+        }
+        return argument;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Maps words to values and also accepts any prefix that only one word starts
+ * with, so "mov" finds "move" and "n" finds "north". Built once; lookups walk
+ * the caller's char buffer without allocating.
+ */
+public class CommandTrie<T> {
+    private final Node<T> root = new Node<>();
+
+    public void put(String word, T value) {
+        Node<T> node = root;
+        node.add(value);
+        for (int i = 0; i < word.length(); i++) {
+            node = node.child(word.charAt(i), true);
+            node.add(value);
+        }
+        node.value = value;
+    }
+
+    // Returns the value of an exact match, else of the only word with this prefix, else null.
+    public T find(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+        Node<T> node = root;
+        for (int i = offset; i < offset + length; i++) {
+            node = node.child(chars[i], false);
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.value != null) {
+            return node.value;
+        }
+        return node.words == 1 ? node.only : null;
+    }
+
+    public T find(String word) {
+        return find(word.toCharArray(), 0, word.length());
+    }
+
+    private static class Node<T> {
+        private char[] keys = new char[0];
+        private Node<T>[] children = newArray(0);
+        private T value;
+        private T only;
+        private int words;
+
+        void add(T word) {
+            if (words == 0 || only != word) {
+                words++;
+            }
+            only = word;
+        }
+
+        Node<T> child(char key, boolean create) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            if (!create) {
+                return null;
+            }
+            char[] grownKeys = new char[keys.length + 1];
+            Node<T>[] grownChildren = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, grownKeys, 0, keys.length);
+            System.arraycopy(children, 0, grownChildren, 0, keys.length);
+            grownKeys[keys.length] = key;
+            grownChildren[keys.length] = new Node<>();
+            keys = grownKeys;
+            children = grownChildren;
+            return children[keys.length - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int length) {
+            return (Node<T>[]) new Node<?>[length];
+        }
+    }
+}
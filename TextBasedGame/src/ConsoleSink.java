@@ -0,0 +1,28 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+
+// Collects a turn's output and writes it to stdout in one go when flushed.
+public class ConsoleSink implements OutputSink {
+    private static final FileChannel STDOUT = new FileOutputStream(FileDescriptor.out).getChannel();
+
+    private final TurnBuffer turn = new TurnBuffer();
+
+    @Override
+    public void print(CharSequence text) {
+        turn.print(text);
+    }
+
+    // Call before waiting for the player, or nothing printed since the last flush is shown.
+    public void flush() {
+        try {
+            while (!turn.writeTo(STDOUT)) {
+                Thread.onSpinWait();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Map coordinates packed into a single long, x in the high 32 bits and y in
+ * the low 32 bits, so positions can be stored and compared without
+ * allocating a Position.
+ */
+public final class Coordinates {
+    private Coordinates() {
+    }
+
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    public static int x(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int y(long packed) {
+        return (int) packed;
+    }
+}
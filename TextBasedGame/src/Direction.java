@@ -0,0 +1,16 @@
+public enum Direction {
+    NORTH("north", 0, -1),
+    SOUTH("south", 0, 1),
+    EAST("east", 1, 0),
+    WEST("west", -1, 0);
+
+    public final String label;
+    public final int dx;
+    public final int dy;
+
+    Direction(String label, int dx, int dy) {
+        this.label = label;
+        this.dx = dx;
+        this.dy = dy;
+    }
+}
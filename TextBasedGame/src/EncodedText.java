@@ -0,0 +1,53 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text that is already UTF-8 bytes, usually a slice of a memory-mapped file.
+ * Sinks that write bytes copy it straight out with bytes(); it is only
+ * decoded if someone reads it as characters, and then just once per handle.
+ */
+public final class EncodedText implements CharSequence {
+    private final ByteBuffer bytes;
+    private String decoded;
+
+    public EncodedText(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    public static EncodedText of(String text) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        return new EncodedText(ByteBuffer.allocateDirect(encoded.length).put(encoded).flip());
+    }
+
+    // A fresh view of the bytes, so callers can consume it without affecting anyone else.
+    public ByteBuffer bytes() {
+        return bytes.duplicate();
+    }
+
+    public int byteLength() {
+        return bytes.remaining();
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (decoded == null) {
+            decoded = StandardCharsets.UTF_8.decode(bytes()).toString();
+        }
+        return decoded;
+    }
+}
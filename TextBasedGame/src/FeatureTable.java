@@ -0,0 +1,86 @@
+/**
+ * Room features compiled once when the world loads. Every feature name is
+ * interned to its ItemRegistry id, each room gets a bitmask of the ids it
+ * contains, and descriptions and collectible flags sit in flat arrays indexed
+ * by id, so looking at or collecting a feature is an array lookup.
+ */
+public class FeatureTable implements Features {
+    private final int[][] roomFeatures;
+    private final long[][] roomMasks;
+    private final String[] roomListings;
+    private final String[] descriptions;
+    private final boolean[] collectible;
+
+    public FeatureTable(String[][] features, String[][] describedFeatures, String[] collectibleItems) {
+        int roomCount = features.length;
+        roomFeatures = new int[roomCount][];
+        roomMasks = new long[roomCount][];
+        roomListings = new String[roomCount];
+
+        int maxId = 0;
+        for (int room = 0; room < roomCount; room++) {
+            String[] names = features[room] == null ? new String[0] : features[room];
+            roomFeatures[room] = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                roomFeatures[room][i] = ItemRegistry.intern(names[i]);
+                maxId = Math.max(maxId, roomFeatures[room][i]);
+            }
+            roomMasks[room] = Inventory.mask(roomFeatures[room]);
+            if (names.length > 0) {
+                roomListings[room] = "\nYou can see:\n- " + String.join("\n- ", names);
+            }
+        }
+        for (String item : collectibleItems) {
+            maxId = Math.max(maxId, ItemRegistry.intern(item));
+        }
+
+        descriptions = new String[maxId + 1];
+        collectible = new boolean[maxId + 1];
+        for (int room = 0; room < roomCount; room++) {
+            for (int id : roomFeatures[room]) {
+                descriptions[id] = "A rather ordinary " + ItemRegistry.name(id) + ".";
+            }
+        }
+        for (String[] described : describedFeatures) {
+            int id = ItemRegistry.find(described[0]);
+            if (id != ItemRegistry.NO_ITEM && id < descriptions.length) {
+                descriptions[id] = described[1];
+            }
+        }
+        for (String item : collectibleItems) {
+            collectible[ItemRegistry.find(item)] = true;
+        }
+    }
+
+    @Override
+    public boolean hasFeature(int roomIndex, int featureId) {
+        long[] mask = roomMasks[roomIndex];
+        int word = featureId >>> 6;
+        return featureId >= 0 && word < mask.length && (mask[word] & (1L << featureId)) != 0;
+    }
+
+    @Override
+    public int getFeatureCount(int roomIndex) {
+        return roomFeatures[roomIndex].length;
+    }
+
+    @Override
+    public int getFeature(int roomIndex, int featureIndex) {
+        return roomFeatures[roomIndex][featureIndex];
+    }
+
+    @Override
+    public String getListing(int roomIndex) {
+        return roomListings[roomIndex];
+    }
+
+    @Override
+    public CharSequence getDescription(int featureId) {
+        return descriptions[featureId];
+    }
+
+    @Override
+    public boolean isCollectible(int itemId) {
+        return itemId >= 0 && itemId < collectible.length && collectible[itemId];
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * The features a player can see, look at and collect in each room, by
+ * ItemRegistry id.
+ */
+public interface Features {
+
+    boolean hasFeature(int roomIndex, int featureId);
+
+    int getFeatureCount(int roomIndex);
+
+    int getFeature(int roomIndex, int featureIndex);
+
+    // The "You can see:" block for a room, or null if it has no features.
+    String getListing(int roomIndex);
+
+    CharSequence getDescription(int featureId);
+
+    boolean isCollectible(int itemId);
+}
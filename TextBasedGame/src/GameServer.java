@@ -0,0 +1,10 @@
+import java.io.IOException;
+
+public interface GameServer {
+
+    void start() throws IOException;
+
+    int getPort();
+
+    void stop() throws IOException;
+}
@@ -0,0 +1,813 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class GameSession {
+    
+    public static final String BATCH_SEPARATOR = ";";
+    // Turns between journal checkpoints; replay never runs more lines than this.
+    private static final int JOURNAL_CHECKPOINT_TURNS = 256;
+    private static final CommandTrie<CommandHandler> COMMANDS = new CommandTrie<>();
+    private static final CommandTrie<Direction> DIRECTIONS = new CommandTrie<>();
+
+    static {
+        COMMANDS.put("move", GameSession::handleMove);
+        COMMANDS.put("look", GameSession::handleLook);
+        COMMANDS.put("inventory", (session, command) -> session.out.println(session.inventory.displayInventory()));
+        COMMANDS.put("hint", (session, command) -> session.displayCurrentObjective());
+        COMMANDS.put("score", (session, command) -> session.out.println("Current score: " + session.score.getScore()));
+        COMMANDS.put("collect", GameSession::handleCollectItem);
+        COMMANDS.put("map", (session, command) -> session.displayMap(command.argument()));
+        COMMANDS.put("help", (session, command) -> session.displayHelp());
+        COMMANDS.put("quit", (session, command) -> session.handleQuit());
+        COMMANDS.put("undo", (session, command) -> session.rewind(1));
+        COMMANDS.put("rewind", GameSession::handleRewind);
+        COMMANDS.put("goto", GameSession::handleGoto);
+
+        for (Direction direction : Direction.values()) {
+            DIRECTIONS.put(direction.label, direction);
+        }
+    }
+
+    private final World world;
+    private final Features features;
+    private OutputSink out;
+    private final Score score;
+    private final TurnHistory history;
+    private PersistentBitSet solvedPuzzles;
+    private PersistentBitSet roomsVisited;
+    private final Inventory inventory;
+    private long currentPosition;
+    private boolean isRunning;
+    private SessionState state;
+    private Puzzle pendingPuzzle;
+    private CommandParser parser;
+    private boolean inBatch;
+    private boolean roomSkipped;
+    private StringBuilder mapBuffer;
+    private MapStream mapStream;
+    private CommandJournal journal;
+    private String journalId;
+    private int journaledTurns;
+
+    public GameSession(OutputSink out) {
+        this(World.MANSION, out);
+    }
+
+    public GameSession(World world, OutputSink out) {
+        this.world = world;
+        this.features = world.getFeatures();
+        this.out = out;
+        score = new Score(0);
+        inventory = new Inventory(world.getInventoryCapacity());
+        solvedPuzzles = PersistentBitSet.EMPTY;
+        roomsVisited = PersistentBitSet.EMPTY;
+        currentPosition = world.getStartingPosition();
+        isRunning = true;
+        state = SessionState.PLAYING;
+
+        if (getRoomIndex(getRoomAtPosition(currentPosition)) == 1) {
+            inventory.addItem("research_manual");
+        }
+        history = new TurnHistory();
+        recordTurn();
+        mapStream = new MapStream();
+    }
+
+    public static GameSession replay(World world, List<String> lines, OutputSink out) {
+        return replay(world, null, lines, out);
+    }
+
+    /**
+     * Rebuilds a session by running journaled lines through the checkpoint they
+     * follow, or a fresh game without one, with the output discarded. A game that
+     * ended partway through is followed by a new one, the same way the player
+     * would have started over.
+     */
+    public static GameSession replay(World world, byte[] checkpoint, List<String> lines, OutputSink out) {
+        OutputSink discard = text -> { };
+        GameSession session = checkpoint == null ? new GameSession(world, discard)
+                : readCheckpoint(world, ByteBuffer.wrap(checkpoint), discard);
+        for (String line : lines) {
+            if (!session.isRunning) {
+                session = new GameSession(world, discard);
+            }
+            session.processLine(line);
+        }
+        if (!session.isRunning) {
+            session = new GameSession(world, discard);
+        }
+        session.out = out;
+        return session;
+    }
+
+    public void start() {
+        displayIntro();
+        out.print(GameText.get(GameText.WELCOME));
+        displayHelp();
+        
+        displayCurrentRoom();
+    }
+
+    // Greets a player whose session was restored and repeats any question still waiting on them.
+    public void resume() {
+        mapStream.invalidate();
+        out.println("\nWelcome back to Temporal Paradox!");
+        displayCurrentRoom();
+        if (state == SessionState.AWAITING_PUZZLE_ANSWER) {
+            out.print(pendingPuzzle.getText().prompt);
+        } else if (state == SessionState.CONFIRMING_QUIT) {
+            out.println("Are you sure you want to quit? (yes/no)");
+        }
+    }
+
+    public void setOutput(OutputSink out) {
+        this.out = out;
+    }
+
+    // Lets a server keep the client's live map across sessions it swaps in, e.g. after hibernation.
+    public void setMapStream(MapStream mapStream) {
+        this.mapStream = mapStream;
+    }
+
+    // Every line this session accepts from now on is appended to the journal under the given id.
+    public void setJournal(CommandJournal journal, String sessionId) {
+        this.journal = journal;
+        this.journalId = sessionId;
+    }
+
+    public void processLine(String line) {
+        if (!inBatch) {
+            record(line);
+        }
+        if (state == SessionState.PLAYING && !inBatch && line.contains(BATCH_SEPARATOR)) {
+            runBatch(line.split(BATCH_SEPARATOR));
+            recordTurn();
+            streamMap();
+            checkpointJournal();
+            return;
+        }
+
+        SessionState pending = state;
+        state = SessionState.PLAYING;
+        switch (pending) {
+            case AWAITING_PUZZLE_ANSWER -> answerPuzzle(pendingPuzzle, line);
+            case CONFIRMING_QUIT -> answerQuit(line.toLowerCase().trim());
+            default -> processCommand(line);
+        }
+        if (!inBatch) {
+            recordTurn();
+            streamMap();
+            checkpointJournal();
+        }
+    }
+
+    /**
+     * Runs several lines as one turn, e.g. "move north; move north; collect power_core".
+     * Room descriptions along the way are skipped and the room the player ends up in
+     * is described once at the end. Lines still answer pending puzzle and quit prompts.
+     *
+     * The batch goes through processLine() as one BATCH_SEPARATOR-joined line, so it
+     * is journaled as one record and replays as the one turn it was. A question already
+     * waiting when the batch starts is answered first, on its own, as at the prompt.
+     */
+    public void processBatch(String[] lines) {
+        int first = 0;
+        while (first < lines.length && isRunning && state != SessionState.PLAYING) {
+            processLine(lines[first++]);
+        }
+        if (first < lines.length && isRunning) {
+            processLine(String.join(BATCH_SEPARATOR, Arrays.copyOfRange(lines, first, lines.length)));
+        }
+    }
+
+    private void runBatch(String[] lines) {
+        inBatch = true;
+        roomSkipped = false;
+        try {
+            for (String line : lines) {
+                if (!isRunning) {
+                    break;
+                }
+                if (state == SessionState.PLAYING && line.isBlank()) {
+                    continue;
+                }
+                processLine(line);
+            }
+        } finally {
+            inBatch = false;
+        }
+
+        if (roomSkipped && isRunning && state == SessionState.PLAYING) {
+            displayCurrentRoom();
+        }
+        roomSkipped = false;
+    }
+
+    // Writes this session in the SessionSnapshot layout at the buffer's position.
+    public void writeSnapshot(ByteBuffer buffer) {
+        buffer.put(SessionSnapshot.VERSION);
+        buffer.putLong(currentPosition);
+        buffer.put((byte) SessionSnapshot.stateByte(state, isRunning));
+        SessionSnapshot.putVarInt(buffer, pendingPuzzle == null ? 0 : world.getPuzzleOrder(pendingPuzzle) + 1);
+        SessionSnapshot.putVarInt(buffer, world.getRoomCount());
+        SessionSnapshot.putBits(buffer, solvedPuzzles, world.getRoomCount());
+        SessionSnapshot.putBits(buffer, roomsVisited, world.getRoomCount());
+        SessionSnapshot.putVarInt(buffer, score.getRoomsVisited());
+        SessionSnapshot.putVarInt(buffer, score.getPuzzlesSolved());
+        SessionSnapshot.putVarInt(buffer, inventory.size());
+        for (int slot = 0; slot < inventory.size(); slot++) {
+            SessionSnapshot.putVarInt(buffer, inventory.getItem(slot));
+        }
+    }
+
+    // A snapshot followed by every turn an undo or rewind can still reach, oldest first.
+    public void writeCheckpoint(ByteBuffer buffer) {
+        writeSnapshot(buffer);
+        Inventory items = new Inventory(world.getInventoryCapacity());
+        SessionSnapshot.putVarInt(buffer, history.size());
+        for (int age = history.size() - 1; age >= 0; age--) {
+            TurnHistory.Turn turn = history.get(age);
+            buffer.putLong(turn.position);
+            SessionSnapshot.putBits(buffer, turn.solvedPuzzles, world.getRoomCount());
+            SessionSnapshot.putBits(buffer, turn.roomsVisited, world.getRoomCount());
+            SessionSnapshot.putVarInt(buffer, turn.visitCount);
+            SessionSnapshot.putVarInt(buffer, turn.solveCount);
+            items.restore(turn.inventory);
+            SessionSnapshot.putVarInt(buffer, items.size());
+            for (int slot = 0; slot < items.size(); slot++) {
+                SessionSnapshot.putVarInt(buffer, items.getItem(slot));
+            }
+        }
+    }
+
+    // Rebuilds a session and its undo history from a checkpoint written by writeCheckpoint for the same world.
+    // The current state is taken from the newest turn, so later turns compare against it as they did originally.
+    public static GameSession readCheckpoint(World world, ByteBuffer buffer, OutputSink out) {
+        GameSession session = readSnapshot(world, buffer, out);
+        int count = SessionSnapshot.getVarInt(buffer);
+        if (count < 1 || count > TurnHistory.DEFAULT_DEPTH) {
+            throw new IllegalArgumentException("Checkpoint holds " + count + " turns");
+        }
+        TurnHistory.Turn[] turns = new TurnHistory.Turn[count];
+        for (int i = 0; i < count; i++) {
+            long position = buffer.getLong();
+            PersistentBitSet solved = SessionSnapshot.getBits(buffer, world.getRoomCount());
+            PersistentBitSet visited = SessionSnapshot.getBits(buffer, world.getRoomCount());
+            int visitCount = SessionSnapshot.getVarInt(buffer);
+            int solveCount = SessionSnapshot.getVarInt(buffer);
+            Inventory items = new Inventory(world.getInventoryCapacity());
+            int size = SessionSnapshot.getVarInt(buffer);
+            for (int slot = 0; slot < size; slot++) {
+                int itemId = SessionSnapshot.getVarInt(buffer);
+                if (itemId >= ItemRegistry.size() || !items.addItem(itemId)) {
+                    throw new IllegalArgumentException("Checkpoint inventory does not fit this world");
+                }
+            }
+            turns[i] = new TurnHistory.Turn(position, solved, visited, items.getContents(), visitCount, solveCount);
+        }
+        session.history.restore(turns);
+        TurnHistory.Turn current = turns[count - 1];
+        session.currentPosition = current.position;
+        session.solvedPuzzles = current.solvedPuzzles;
+        session.roomsVisited = current.roomsVisited;
+        session.inventory.restore(current.inventory);
+        session.score.restore(current.visitCount, current.solveCount);
+        return session;
+    }
+
+    // Rebuilds a session from a snapshot written by writeSnapshot for the same world.
+    // Its undo history starts at the restored state.
+    public static GameSession readSnapshot(World world, ByteBuffer buffer, OutputSink out) {
+        SessionSnapshot.checkVersion(buffer);
+        GameSession session = new GameSession(world, out);
+        session.currentPosition = buffer.getLong();
+        int stateByte = buffer.get();
+        session.state = SessionSnapshot.state(stateByte);
+        session.isRunning = SessionSnapshot.running(stateByte);
+        int pending = SessionSnapshot.getVarInt(buffer) - 1;
+        if (pending >= world.getPuzzleCount()) {
+            throw new IllegalArgumentException("Snapshot refers to puzzle " + pending);
+        }
+        session.pendingPuzzle = pending < 0 ? null : world.getPuzzle(pending);
+        if (session.state == SessionState.AWAITING_PUZZLE_ANSWER && session.pendingPuzzle == null) {
+            throw new IllegalArgumentException("Snapshot is awaiting an answer but has no puzzle");
+        }
+
+        int roomCount = SessionSnapshot.getVarInt(buffer);
+        if (roomCount != world.getRoomCount()) {
+            throw new IllegalArgumentException("Snapshot has " + roomCount + " rooms, world has " + world.getRoomCount());
+        }
+        session.solvedPuzzles = SessionSnapshot.getBits(buffer, roomCount);
+        session.roomsVisited = SessionSnapshot.getBits(buffer, roomCount);
+        session.score.restore(SessionSnapshot.getVarInt(buffer), SessionSnapshot.getVarInt(buffer));
+
+        int items = SessionSnapshot.getVarInt(buffer);
+        session.inventory.clear();
+        for (int i = 0; i < items; i++) {
+            int itemId = SessionSnapshot.getVarInt(buffer);
+            if (itemId >= ItemRegistry.size() || !session.inventory.addItem(itemId)) {
+                throw new IllegalArgumentException("Snapshot inventory does not fit this world");
+            }
+        }
+        session.history.restore(new TurnHistory.Turn[0]);
+        session.recordTurn();
+        return session;
+    }
+
+    // Blank lines at the command prompt change nothing, so they are not worth a journal record.
+    private void record(String line) {
+        if (journal != null && !(state == SessionState.PLAYING && line.isBlank())) {
+            journal.append(journalId, line);
+        }
+    }
+
+    // Lets the journal forget everything before this turn once enough turns have piled up or the game is over.
+    private void checkpointJournal() {
+        if (journal != null && (++journaledTurns >= JOURNAL_CHECKPOINT_TURNS || !isRunning)) {
+            journal.checkpoint(journalId, SessionSnapshot.checkpointBytes(this, world));
+            journaledTurns = 0;
+        }
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public boolean isAwaitingAnswer() {
+        return state != SessionState.PLAYING;
+    }
+
+    public SessionState getState() {
+        return state;
+    }
+
+    public long getPosition() {
+        return currentPosition;
+    }
+
+    public PersistentBitSet getSolvedPuzzles() {
+        return solvedPuzzles;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+
+    private void processCommand(String input) {
+        if (parser == null) {
+            parser = new CommandParser();
+        }
+        parser.parse(input);
+        if (parser.isTooLong()) {
+            out.println("That command is too long. Commands can be at most " + CommandParser.MAX_LENGTH + " characters.");
+            return;
+        }
+        if (parser.isEmpty()) {
+            out.println("Please enter a command. Type 'help' for available commands.");
+            return;
+        }
+
+        CommandHandler handler = parser.resolveVerb(COMMANDS);
+        if (handler == null) {
+            out.println("Unknown command. Type 'help' for all of the available commands.");
+            return;
+        }
+        handler.execute(this, parser);
+    }
+
+    private void handleMove(CommandParser command) {
+        if (!command.hasArgument()) {
+            out.println("Please specify a direction.Choose from either (north, south, east, west).");
+            return;
+        }
+
+        Direction direction = command.resolveArgument(DIRECTIONS);
+        if (direction == null) {
+            out.println("You cannot move in that direction. It's beyond the mansion's boundaries.");
+            return;
+        }
+        long newPosition = Coordinates.pack(Coordinates.x(currentPosition) + direction.dx,
+                Coordinates.y(currentPosition) + direction.dy);
+
+        Room currentRoom = getRoomAtPosition(currentPosition);
+        if (currentRoom != null) {  
+            int currentRoomIndex = getRoomIndex(currentRoom);
+            if (shouldRequirePuzzle(currentRoomIndex) && !solvedPuzzles.get(currentRoomIndex)) {
+                out.println("You need to solve this room's puzzle before leaving!");
+                return;
+            }
+        }
+
+        if (isValidPosition(newPosition)) {
+            currentPosition = newPosition;
+            
+            Room targetRoom = getRoomAtPosition(currentPosition);
+            if (targetRoom != null) {
+                out.println("You move " + direction.label + " to the " + targetRoom.getName());
+                if (inBatch) {
+                    roomSkipped = true;
+                } else {
+                    displayCurrentRoom();
+                }
+                
+                
+                int newRoomIndex = getRoomIndex(targetRoom);
+                markVisited(newRoomIndex);
+                
+                
+                if (shouldRequirePuzzle(newRoomIndex) && !solvedPuzzles.get(newRoomIndex)) {
+                    presentRoomPuzzle(newRoomIndex);
+                }
+            } else {
+                out.println("You move " + direction.label + " to an empty space in the mansion.");
+            }
+        } else {
+            out.println("You cannot move in that direction.");
+        }
+    }
+
+    private void markVisited(int roomIndex) {
+        if (!roomsVisited.get(roomIndex)) {
+            roomsVisited = roomsVisited.with(roomIndex);
+            score.visitRoom();
+        }
+    }
+
+    // Walks the whole route in one turn; rooms passed on the way count as visited.
+    private void handleGoto(CommandParser command) {
+        if (!command.hasArgument()) {
+            out.println("Please specify a room, e.g. goto library.");
+            return;
+        }
+        Room target = world.findRoom(command.argument());
+        if (target == null) {
+            out.println("There is no room called " + command.argument() + " in the mansion.");
+            return;
+        }
+        int currentRoomIndex = getRoomIndex(getRoomAtPosition(currentPosition));
+        if (currentRoomIndex == target.getId()) {
+            out.println("You are already in the " + target.getName() + ".");
+            return;
+        }
+        if (currentRoomIndex != RoomIndex.NO_ROOM && shouldRequirePuzzle(currentRoomIndex)
+                && !solvedPuzzles.get(currentRoomIndex)) {
+            out.println("You need to solve this room's puzzle before leaving!");
+            return;
+        }
+
+        Direction[] steps = world.getRoutes().route(currentPosition, target.getId(), solvedPuzzles);
+        if (steps == null) {
+            out.println("You can't find a way to the " + target.getName() + " without getting stuck in an unsolved puzzle room.");
+            return;
+        }
+        if (steps == RouteTable.GAVE_UP) {
+            out.println("The " + target.getName() + " is too far away to plan a route to. Try a room closer by first.");
+            return;
+        }
+        for (Direction step : steps) {
+            currentPosition = Coordinates.pack(Coordinates.x(currentPosition) + step.dx, Coordinates.y(currentPosition) + step.dy);
+            int passed = getRoomIndex(getRoomAtPosition(currentPosition));
+            if (passed != RoomIndex.NO_ROOM) {
+                markVisited(passed);
+            }
+        }
+
+        out.println("You make your way to the " + target.getName() + " (" + steps.length + " moves).");
+        if (inBatch) {
+            roomSkipped = true;
+        } else {
+            displayCurrentRoom();
+        }
+        if (shouldRequirePuzzle(target.getId()) && !solvedPuzzles.get(target.getId())) {
+            presentRoomPuzzle(target.getId());
+        }
+    }
+
+    private void handleLook(CommandParser command) {
+        if (!command.hasArgument()) {
+            displayCurrentRoom();
+        } else {
+            handleLookAt(command);
+        }
+    }
+
+    private void handleLookAt(CommandParser command) {
+        Room currentRoom = getRoomAtPosition(currentPosition);
+        if (currentRoom == null) {
+            out.println("You don't see anything like that here.");
+            return;
+        }
+
+        int roomIndex = getRoomIndex(currentRoom);
+        int featureId = command.argumentId();
+        
+        if (features.hasFeature(roomIndex, featureId)) {
+            out.println(features.getDescription(featureId));
+            
+            Puzzle puzzle = world.getPuzzleForRoom(roomIndex);
+            if (puzzle != null && puzzle.getTrigger() == featureId) {
+                checkForPuzzle(puzzle);
+            }
+        } else if (inventory.contains(featureId)) {
+            out.println(getItemDescription(command.argument()));
+        } else {
+            out.println("You don't see any " + command.argument() + " here.");
+        }
+    }
+
+    private boolean isValidPosition(long pos) {
+        return world.isValidPosition(pos);
+    }
+
+    private void presentPuzzle(Puzzle puzzle) {
+        out.println(puzzle.getText().intro);
+        out.print(puzzle.getText().prompt);
+        pendingPuzzle = puzzle;
+        state = SessionState.AWAITING_PUZZLE_ANSWER;
+    }
+
+    private void answerPuzzle(Puzzle puzzle, String answer) {
+        pendingPuzzle = null;
+        if (puzzle.isCorrect(answer)) {
+            out.println(puzzle.getText().success);
+            solvedPuzzles = solvedPuzzles.with(puzzle.getRoomId());
+            inventory.removeItem(puzzle.getPartItem());
+            inventory.addItem(puzzle.getReward());
+            score.solvePuzzle();
+            if (checkWinCondition()) {
+                handleWin();
+            }
+        } else if (puzzle.getText().failure != null) {
+            out.println(puzzle.getText().failure);
+        }
+    }
+
+    private boolean shouldRequirePuzzle(int roomIndex) {
+        return world.getPuzzleForRoom(roomIndex) != null;
+    }
+
+    private boolean canAttemptPuzzle(Puzzle puzzle) {
+        Puzzle previous = world.getPreviousPuzzle(puzzle);
+        return previous == null || solvedPuzzles.get(previous.getRoomId());
+    }
+
+    private void presentRoomPuzzle(int roomIndex) {
+        Puzzle puzzle = world.getPuzzleForRoom(roomIndex);
+        out.println("\nThis room contains a puzzle that needs to be solved!");
+        out.println(puzzle.getText().arrival);
+        out.println(puzzle.getLookHint());
+    }
+
+    private void checkForPuzzle(Puzzle puzzle) {
+        PuzzleText text = puzzle.getText();
+        if (solvedPuzzles.get(puzzle.getRoomId())) {
+            out.println("You've already solved this room's puzzle.");
+            return;
+        }
+
+        if (!canAttemptPuzzle(puzzle)) {
+            if (!inventory.contains(puzzle.getKeyItem())) {
+                out.println(text.locked);
+            }
+            return;
+        }
+
+        if (!inventory.contains(puzzle.getKeyItem())) {
+            out.println(text.missingKey);
+        } else if (!inventory.contains(puzzle.getPartItem())) {
+            out.println(puzzle.getMissingPartMessage());
+        } else {
+            out.println(text.begin);
+            presentPuzzle(puzzle);
+        }
+    }
+
+    private void displayCurrentRoom() {
+        // Once the room has been described, a batch has nothing left to catch up on.
+        roomSkipped = false;
+        Room currentRoom = getRoomAtPosition(currentPosition);
+        if (currentRoom != null) {
+            out.println("\nYou are in the " + currentRoom.getName());
+            out.println(currentRoom.getDescription());
+            
+            int roomIndex = getRoomIndex(currentRoom);
+            if (shouldRequirePuzzle(roomIndex)) {
+                if (solvedPuzzles.get(roomIndex)) {
+                    out.println("You have solved this room's puzzle.");
+                } else {
+                    out.println("This room contains an unsolved puzzle!");
+                }
+            }
+            
+            out.println("\nPuzzles solved: " + countSolvedPuzzles() + "/" + world.getPuzzleCount());
+            
+            displayRoomFeatures(currentRoom);
+        } else {
+            out.println("You are in an empty space in the mansion.");
+        }
+    }
+
+    private void displayRoomFeatures(Room room) {
+        String listing = features.getListing(getRoomIndex(room));
+        if (listing != null) {
+            out.println(listing);
+        }
+    }
+
+    private void displayMap(String zoomLevel) {
+        if (zoomLevel.equals("off")) {
+            mapStream.disable(out);
+            out.println("The live map is off.");
+            return;
+        }
+        boolean live = zoomLevel.equals("live") || zoomLevel.startsWith("live ");
+        if (live) {
+            zoomLevel = zoomLevel.substring(4).trim();
+        }
+        int zoom = 1;
+        if (!zoomLevel.isEmpty()) {
+            try {
+                zoom = Integer.parseInt(zoomLevel);
+            } catch (NumberFormatException e) {
+                zoom = 0;
+            }
+            if (zoom < 1 || zoom > Map.MAX_ZOOM) {
+                out.println("Please give a zoom level between 1 and " + Map.MAX_ZOOM + ".");
+                return;
+            }
+        }
+
+        // With the live map on, "map" just redraws it; the frame is sent at the end of the turn.
+        if (live || mapStream.isEnabled()) {
+            mapStream.enable(zoom);
+            return;
+        }
+
+        if (mapBuffer == null) {
+            mapBuffer = new StringBuilder();
+        }
+        mapBuffer.setLength(0);
+        Map map = world.getMap();
+        if (zoom == 1 && map.fitsInView()) {
+            map.displayEnhanced(currentPosition, mapBuffer);
+            out.print(mapBuffer);
+            out.print(GameText.get(GameText.MAP_GUIDE));
+            out.println(map.getLegend());
+        } else {
+            map.displayViewport(currentPosition, zoom, mapBuffer);
+            out.print(mapBuffer);
+            out.println(GameText.get(GameText.MAP_GUIDE));
+        }
+    }
+
+    private void streamMap() {
+        if (isRunning) {
+            mapStream.update(world.getMap(), currentPosition, out);
+        } else {
+            mapStream.disable(out);
+        }
+    }
+
+    private int countSolvedPuzzles() {
+        return solvedPuzzles.cardinality();
+    }
+
+    private boolean checkWinCondition() {
+        return countSolvedPuzzles() == world.getPuzzleCount() && inventory.containsAll(world.getWinItems());
+    }
+
+    private void handleWin() {
+        out.print(GameText.get(GameText.WIN_HEADER));
+        out.print(String.valueOf(score.getScore()));
+        out.print(GameText.get(GameText.WIN_FOOTER));
+        isRunning = false;
+    }
+
+    private Room getRoomAtPosition(long pos) {
+        return world.getRoomAtPosition(pos);
+    }
+
+    private int getRoomIndex(Room room) {
+        return world.getRoomIndex(room);
+    }
+
+
+    
+
+    private void handleCollectItem(CommandParser command) {
+        Room currentRoom = getRoomAtPosition(currentPosition);
+        if (currentRoom == null) {
+            out.println("There's nothing to collect here.");
+            return;
+        }
+
+        int roomIndex = getRoomIndex(currentRoom);
+        int itemId = command.argumentId();
+        if (features.hasFeature(roomIndex, itemId) && features.isCollectible(itemId)) {
+            if (inventory.addItem(itemId)) {
+                out.println("You collected: " + command.argument());
+            } else {
+                out.println(Inventory.FULL_MESSAGE);
+            }
+            return;
+        }
+        out.println("You can't collect that.");
+    }
+
+    private String getItemDescription(String item) {
+        return "A " + item + " - no special description available.";
+    }
+
+    private void recordTurn() {
+        history.record(new TurnHistory.Turn(currentPosition, solvedPuzzles, roomsVisited,
+                inventory.getContents(), score.getRoomsVisited(), score.getPuzzlesSolved()));
+    }
+
+    private void handleRewind(CommandParser command) {
+        if (!command.hasArgument()) {
+            out.println("Please specify how many turns to rewind.");
+            return;
+        }
+        try {
+            rewind(Integer.parseInt(command.argument()));
+        } catch (NumberFormatException e) {
+            out.println("Please give the number of turns to rewind, e.g. rewind 3.");
+        }
+    }
+
+    // Puts back the state from n turns ago; the persistent structures make this a few field writes.
+    private void rewind(int turns) {
+        if (history.available() == 0) {
+            out.println("There is nothing to rewind yet.");
+            return;
+        }
+        if (turns < 1 || turns > history.available()) {
+            out.println("You can rewind between 1 and " + history.available() + " turns.");
+            return;
+        }
+
+        TurnHistory.Turn turn = history.rewind(turns);
+        currentPosition = turn.position;
+        solvedPuzzles = turn.solvedPuzzles;
+        roomsVisited = turn.roomsVisited;
+        inventory.restore(turn.inventory);
+        score.restore(turn.visitCount, turn.solveCount);
+
+        out.println("Time folds back on itself... " + turns + (turns == 1 ? " turn" : " turns") + " undone.");
+        if (inBatch) {
+            roomSkipped = true;
+        } else {
+            displayCurrentRoom();
+        }
+    }
+
+    private void handleQuit() {
+        out.println("Are you sure you want to quit? (yes/no)");
+        state = SessionState.CONFIRMING_QUIT;
+    }
+
+    private void answerQuit(String response) {
+        if (response.equals("yes")) {
+            out.println("Thanks for playing! Final score: " + score.getScore());
+            isRunning = false;
+        }
+    }
+
+    private void displayCurrentObjective() {
+        out.println("\n=== CURRENT OBJECTIVE ===");
+        
+        if (!inventory.contains(world.getPuzzle(0).getKeyItem())) {
+            out.println(world.getFirstObjective());
+            return;
+        }
+
+        for (int i = 0; i < world.getPuzzleCount(); i++) {
+            Puzzle puzzle = world.getPuzzle(i);
+            if (!solvedPuzzles.get(puzzle.getRoomId())) {
+                if (!inventory.contains(puzzle.getPartItem())) {
+                    out.println(puzzle.getText().collectObjective);
+                } else {
+                    out.println(puzzle.getText().solveObjective);
+                }
+                return;
+            }
+        }
+
+        if (checkWinCondition()) {
+            out.println("Congratulations! You have all the items needed to break free from the time loop!");
+            out.println("Your collection of temporal artifacts is complete.");
+        } else {
+            out.println("Check your inventory and make sure you have all required items.");
+        }
+    }
+
+    private void displayHelp() {
+        out.print(GameText.get(GameText.HELP));
+    }
+
+    private void displayIntro() {
+        out.print(GameText.get(GameText.INTRO));
+    }
+}
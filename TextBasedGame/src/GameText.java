@@ -0,0 +1,108 @@
+/**
+ * The game's fixed text: the intro, help, win banner and map guide, encoded
+ * once into an in-memory StringPool so every session prints the same
+ * pre-encoded bytes. It is only a few kilobytes and is built from the
+ * constants below, so there is no shared file for anyone else to swap out or
+ * for a change here to go stale against. Each text includes its own trailing
+ * line break where the game prints one.
+ */
+public final class GameText {
+    public static final int INTRO = 0;
+    public static final int WELCOME = 1;
+    public static final int HELP = 2;
+    public static final int WIN_HEADER = 3;
+    public static final int WIN_FOOTER = 4;
+    public static final int MAP_GUIDE = 5;
+
+    private static final String INTRO_TEXT = """
+         _______  _______  __   __  _______  _______  ______    _______  ___       
+        |       ||       ||  |_|  ||       ||       ||    _ |  |   _   ||   |      
+        |_     _||    ___||       ||    _  ||   _   ||   | ||  |  |_|  ||   |      
+          |   |  |   |___ |       ||   |_| ||  | |  ||   |_||_ |       ||   |      
+          |   |  |    ___||       ||    ___||  |_|  ||    __  ||       ||   |___   
+          |   |  |   |___ | ||_|| ||   |    |       ||   |  | ||   _   ||       |  
+          |___|  |_______||_|   |_||___|    |_______||___|  |_||__| |__||_______|  
+                _______  _______  ______    _______  ______   _______  __   __            
+                |       ||   _   ||    _ |  |   _   ||      | |       ||  |_|  |           
+                |    _  ||  |_|  ||   | ||  |  |_|  ||  _    ||   _   ||       |           
+                |   |_| ||       ||   |_||_ |       || | |   ||  | |  ||       |           
+                |    ___||       ||    __  ||       || |_|   ||  |_|  | |     |            
+                |   |    |   _   ||   |  | ||   _   ||       ||       ||   _   |           
+                |___|    |__| |__||___|  |_||__| |__||______| |_______||__| |__|  
+                
+            You are  Dr.TTN , a brilliant quantum physicist who was working
+            on a revolutionary time manipulation device called the Chronosphere in his
+            private laboratory. During a crucial experiment, something went terribly 
+            wrong, causing a temporal explosion that trapped her in a 60-minute time 
+            loop within her Victorian-era mansion-turned-laboratory. Each loop resets at
+            midnight, but anything in her special "quantum-locked" inventory remains with
+            her across loops.
+            """ + "\n";
+
+    private static final String WELCOME_TEXT = "\nWelcome to Temporal Paradox!\nYou find yourself in the Main Laboratory...\n"
+            + "\nHere are the available commands:\n";
+
+    private static final String HELP_TEXT = """
+             ================ GAME COMMANDS ================
+            - move <direction>  : Move in specified direction (north, south, east, west)
+            - look             : Look around your current room
+            - look <feature>   : Look at a specific feature in the room
+            - collect <item>    : Pick up an item from the current room
+            - look <item>      : Look at a specific item in your inventory
+            - inventory        : Display your inventory
+            - hint             : Get a hint about your current objective
+            - score           : Display your current score
+            - map             : Display the game map
+            - map <zoom>      : Display the map zoomed out (1-8)
+            - map live        : Keep the map at the top of the screen (map off hides it)
+            - goto <room>     : Walk straight to a room by name
+            - undo            : Take back your last turn
+            - rewind <n>      : Turn back time by n turns
+            - <cmd>; <cmd>    : Run several commands in one go
+            - help            : Display this help message
+            - quit            : Exit the game
+            ===============================================
+            """ + "\n";
+
+    private static final String WIN_HEADER_TEXT = """
+            
+            =====================================================
+            CONGRATULATIONS! You've solved all temporal puzzles!
+            -----------------------------------------------------
+            With all four temporal artifacts in your possession:
+            - The repaired keycard
+            - The power module
+            - The temporal essence
+            - The time shard
+            
+            You combine their energies with the Chronosphere...
+            
+            There's a brilliant flash of light, and you feel the
+            time loop finally breaking! Dr. TTN is free at last!
+            -----------------------------------------------------
+            Final Score: """;
+
+    private static final String WIN_FOOTER_TEXT = """
+            
+            Thank you for playing Temporal Paradox!
+            =====================================================
+            """ + "\n";
+
+    private static final String MAP_GUIDE_TEXT = "\nGuide\n@ = You are here\n@* = You are in a room\n. = Empty space";
+
+    private GameText() {
+    }
+
+    public static EncodedText get(int id) {
+        return Holder.POOL.get(id);
+    }
+
+    // Encoded on first use rather than when the class is loaded.
+    private static final class Holder {
+        private static final StringPool POOL = StringPool.of(texts());
+    }
+
+    private static String[] texts() {
+        return new String[] {INTRO_TEXT, WELCOME_TEXT, HELP_TEXT, WIN_HEADER_TEXT, WIN_FOOTER_TEXT, MAP_GUIDE_TEXT};
+    }
+}
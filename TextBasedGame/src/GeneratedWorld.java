@@ -0,0 +1,613 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.SplittableRandom;
+
+/**
+ * A mansion generated from a seed. The floor is cut into square regions of
+ * ChunkedGrid.CHUNK_SIZE cells, each holding up to ROOMS_PER_REGION rooms, and
+ * a region is only generated when a player first comes near it. Generation is
+ * a pure function of the seed and the region's coordinates, so the least
+ * recently used regions can be evicted once more than maxResident are loaded
+ * and rebuilt identically the next time someone walks in.
+ *
+ * Only the puzzle chain is built up front: puzzle k sits in room 0 of a region
+ * a few steps on from puzzle k - 1, with its part in room 1 of the same
+ * region, and its key is the previous puzzle's reward. Room ids are the region
+ * index times ROOMS_PER_REGION plus the room's slot, and room names end in a
+ * tag "x.y.slot" giving the region relative to the start, which is all
+ * findRoom needs to find a room without a name index. A prefix is matched by
+ * generating just the regions whose tags could complete it.
+ *
+ * Resident regions are spread over REGION_STRIPES independently locked LRU
+ * maps by the low two bits of each coordinate, so players in different parts
+ * of the mansion rarely wait on each other and the nine regions around any
+ * one always fall in nine different stripes. Least recently used is only
+ * exact within a stripe.
+ */
+public final class GeneratedWorld implements World {
+    public static final int DEFAULT_PUZZLES = 100;
+    public static final int DEFAULT_REGIONS_PER_SIDE = 4096;
+    public static final int DEFAULT_RESIDENT_REGIONS = 256;
+    private static final int REGION_SIZE = ChunkedGrid.CHUNK_SIZE;
+    private static final int REGION_STRIPES = 16;
+    private static final int ROOMS_PER_REGION = 4;
+    private static final int MAX_PUZZLE_STEP = 3;
+    private static final int FEATURES_PER_ROOM = 2;
+    private static final int MAX_PREFIX_REGIONS = 4096;
+    private static final int[] NO_ROOMS = new int[0];
+    private static final char PUZZLE_SYMBOL = '?';
+    private static final String FIRST_KEY = "field_journal";
+
+    private static final String[] ADJECTIVES = {"Dusty", "Silent", "Flooded", "Gilded", "Crooked", "Forgotten", "Frozen", "Flickering"};
+    private static final String[] MOODS = {
+        "Everything is buried under a thick layer of dust.",
+        "Not even the floorboards creak in here.",
+        "An inch of still water covers the floor.",
+        "Gold leaf peels from every surface.",
+        "The walls lean in at impossible angles.",
+        "Nobody seems to have set foot in here for years.",
+        "Frost has crept over everything, though the air is not cold.",
+        "The lights stutter, as if time keeps skipping.",
+    };
+    private static final String[] NOUNS = {"Archive", "Ballroom", "Chapel", "Den", "Foyer", "Gallery", "Hall", "Kitchen",
+        "Library", "Nursery", "Observatory", "Parlour", "Study", "Vault", "Workshop"};
+    private static final String[] NOUN_DESCRIPTIONS = {
+        "Shelves of crumbling ledgers reach up into the dark.",
+        "A vast dance floor under a cracked chandelier.",
+        "Rows of pews face a window of stained glass.",
+        "A small room with a worn armchair by a cold hearth.",
+        "A grand entrance with a sweeping staircase.",
+        "Portraits line the walls, their eyes following you.",
+        "A long corridor of doors, most of them locked.",
+        "Copper pans hang above a long-cold range.",
+        "Books are stacked in towers taller than you.",
+        "A rocking horse sways gently on its own.",
+        "A brass telescope points at a painted ceiling of stars.",
+        "Velvet chairs are arranged around a silent piano.",
+        "A writing desk is covered in unfinished letters.",
+        "Thick steel doors stand open on empty shelves.",
+        "Half-built clockwork contraptions cover every bench.",
+    };
+    private static final String[][] FLAVOUR = {
+        {"cobwebs", "Thick cobwebs, undisturbed for what might be centuries."},
+        {"portrait", "A portrait of Dr. TTN, looking younger than you remember."},
+        {"grandfather_clock", "A grandfather clock whose hands spin backwards."},
+        {"candelabra", "A candelabra with candles that never burn down."},
+        {"rug", "A faded rug with a pattern of interlocking hourglasses."},
+        {"mirror", "Your reflection moves a moment after you do."},
+        {"bookshelf", "Every book on the shelf has the same title: 'Yesterday'."},
+        {"window", "Outside, the same leaf falls from the same tree, again and again."},
+        {"fireplace", "The ashes in the grate are still warm."},
+        {"calendar", "Every page of the calendar shows the same date."},
+        {"music_box", "It plays a tune that ends just before it starts."},
+        {"trunk", "A heavy trunk, locked tight and too heavy to move."},
+    };
+    private static final String[] TRIGGERS = {"clock_face", "pendulum", "astrolabe", "hourglass", "orrery", "metronome"};
+    private static final String[] PARTS = {"brass_cog", "mainspring", "crystal_lens", "silver_pin", "copper_coil", "glass_bead"};
+    private static final String[] ANSWERS = {"TIME", "CLOCK", "HOUR", "ECHO", "LOOP", "DAWN", "DUSK", "TIDE", "EPOCH",
+        "MINUTE", "SECOND", "FUTURE", "MEMORY", "AGAIN", "RETURN", "ETERNAL"};
+
+    private final long seed;
+    private final int regionsPerSide;
+    private final int regionsPerStripe;
+    private final int startRegionX;
+    private final int startRegionY;
+    private final long startingPosition;
+    private final Map map;
+    private final Puzzle[] puzzles;
+    private final int[] puzzleRegions;
+    private final HashMap<Integer, Integer> puzzleOrderByRegion;
+    private final HashMap<Integer, int[]> roomsWithItem;
+    private final String[] triggerNames;
+    private final String[] partNames;
+    private final int[] flavourIds;
+    private final String[] descriptions;
+    private final boolean[] collectible;
+    private final long[] winItems;
+    private final String firstObjective;
+    private final RouteTable routes;
+    private final Features features;
+    private final Stripe[] stripes;
+
+    public GeneratedWorld(long seed) {
+        this(seed, DEFAULT_PUZZLES);
+    }
+
+    public GeneratedWorld(long seed, int puzzleCount) {
+        this(seed, puzzleCount, DEFAULT_REGIONS_PER_SIDE, DEFAULT_RESIDENT_REGIONS);
+    }
+
+    public GeneratedWorld(long seed, int puzzleCount, int regionsPerSide, int maxResident) {
+        if (puzzleCount < 1 || (long) puzzleCount * MAX_PUZZLE_STEP >= regionsPerSide / 2) {
+            throw new IllegalArgumentException(puzzleCount + " puzzles do not fit in " + regionsPerSide + " regions a side");
+        }
+        if ((long) regionsPerSide * regionsPerSide * ROOMS_PER_REGION > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("At most 23170 regions a side");
+        }
+        if (maxResident < 16) {
+            throw new IllegalArgumentException("At least 16 regions must stay resident");
+        }
+        this.seed = seed;
+        this.regionsPerSide = regionsPerSide;
+        this.regionsPerStripe = maxResident / REGION_STRIPES;
+        startRegionX = regionsPerSide / 2;
+        startRegionY = regionsPerSide / 2;
+        startingPosition = Coordinates.pack(startRegionX * REGION_SIZE + REGION_SIZE / 2, startRegionY * REGION_SIZE + REGION_SIZE / 2);
+        map = new Map(regionsPerSide * REGION_SIZE, regionsPerSide * REGION_SIZE);
+        features = new RegionFeatures();
+        stripes = new Stripe[REGION_STRIPES];
+        for (int i = 0; i < REGION_STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        flavourIds = new int[FLAVOUR.length];
+        for (int i = 0; i < FLAVOUR.length; i++) {
+            flavourIds[i] = ItemRegistry.intern(FLAVOUR[i][0]);
+        }
+
+        // Lay the chain out first; generating a region needs to know which puzzle it holds.
+        puzzles = new Puzzle[puzzleCount];
+        puzzleRegions = new int[puzzleCount];
+        puzzleOrderByRegion = new HashMap<>();
+        triggerNames = new String[puzzleCount];
+        partNames = new String[puzzleCount];
+        String[] rewardNames = new String[puzzleCount];
+        SplittableRandom chain = new SplittableRandom(seed);
+        int rx = startRegionX;
+        int ry = startRegionY;
+        for (int order = 0; order < puzzleCount; order++) {
+            if (chain.nextBoolean()) {
+                rx += chain.nextInt(1, MAX_PUZZLE_STEP + 1);
+            } else {
+                ry += chain.nextInt(1, MAX_PUZZLE_STEP + 1);
+            }
+            puzzleRegions[order] = ry * regionsPerSide + rx;
+            puzzleOrderByRegion.put(puzzleRegions[order], order);
+            triggerNames[order] = TRIGGERS[order % TRIGGERS.length] + "_" + (order + 1);
+            partNames[order] = PARTS[order % PARTS.length] + "_" + (order + 1);
+            rewardNames[order] = "time_shard_" + (order + 1);
+            ItemRegistry.intern(triggerNames[order]);
+            ItemRegistry.intern(partNames[order]);
+        }
+
+        roomsWithItem = new HashMap<>();
+        ItemRegistry.intern(FIRST_KEY);
+        Region start = generate(startRegionX, startRegionY);
+        roomsWithItem.put(ItemRegistry.find(FIRST_KEY), new int[] {start.rooms[0].getId()});
+        firstObjective = "Go to the " + start.rooms[0].getName() + " and collect the field journal ('collect " + FIRST_KEY + "')";
+
+        int[] rewards = new int[puzzleCount];
+        String key = FIRST_KEY;
+        for (int order = 0; order < puzzleCount; order++) {
+            Region region = generate(puzzleRegions[order] % regionsPerSide, puzzleRegions[order] / regionsPerSide);
+            puzzles[order] = createPuzzle(order, key, rewardNames[order], region.rooms[0], region.rooms[1], chain);
+            roomsWithItem.put(puzzles[order].getPartItem(), new int[] {region.rooms[1].getId()});
+            rewards[order] = puzzles[order].getReward();
+            key = rewardNames[order];
+        }
+        winItems = Inventory.mask(rewards);
+
+        descriptions = new String[ItemRegistry.size()];
+        collectible = new boolean[ItemRegistry.size()];
+        for (int i = 0; i < FLAVOUR.length; i++) {
+            descriptions[flavourIds[i]] = FLAVOUR[i][1];
+        }
+        int firstKey = ItemRegistry.find(FIRST_KEY);
+        descriptions[firstKey] = "Your own notes on the mansion. The first page just says: 'follow the shards'.";
+        collectible[firstKey] = true;
+        for (Puzzle puzzle : puzzles) {
+            descriptions[puzzle.getTrigger()] = "It is stuck between two moments, ticking without moving.";
+            descriptions[puzzle.getPartItem()] = "A small " + words(ItemRegistry.name(puzzle.getPartItem())) + ", still faintly humming.";
+            descriptions[puzzle.getReward()] = "A sliver of frozen time, cold to the touch.";
+            collectible[puzzle.getPartItem()] = true;
+            collectible[puzzle.getReward()] = true;
+        }
+        routes = new RouteTable(this, map.getWidth(), map.getHeight());
+    }
+
+    private Puzzle createPuzzle(int order, String key, String reward, Room room, Room partRoom, SplittableRandom chain) {
+        String trigger = triggerNames[order];
+        String part = partNames[order];
+        String answer = ANSWERS[chain.nextInt(ANSWERS.length)];
+        String hidden = new StringBuilder(answer).reverse().toString();
+        String title = words(trigger).toUpperCase();
+        return new Puzzle(room.getId(), trigger, key, part, reward, answer, new PuzzleText(
+            "A " + words(trigger) + " stands in the middle of the room, frozen mid-tick...",
+            "\nThe " + words(trigger) + " will not move. Something earlier in the chain must be set right first.",
+            "\nThe " + words(trigger) + " has a slot shaped like the " + words(key) + ". You need it first.",
+            "\nYou fit the " + words(key) + " into the slot and the " + words(trigger) + " shudders.",
+            "\n=== " + title + " PUZZLE (" + (order + 1) + " of " + puzzles.length + ") ===\nLetters are scratched into its casing, backwards: '"
+                + hidden + "'.\nHint: Say the word the right way round to set it moving again.",
+            "Enter the word: ",
+            "The " + words(trigger) + " ticks forward and a " + words(reward) + " drops into your hand!",
+            "The " + words(trigger) + " stays frozen. That wasn't the word.",
+            "Go to the " + partRoom.getName() + " and collect the " + words(part) + " ('collect " + part + "')",
+            "Use the " + words(key) + " on the " + words(trigger) + " in the " + room.getName() + " (look at '" + trigger + "')"));
+    }
+
+    private static String words(String name) {
+        return name.replace('_', ' ');
+    }
+
+    // Everything in a region follows from the seed and its coordinates alone.
+    private Region generate(int rx, int ry) {
+        int index = ry * regionsPerSide + rx;
+        Integer order = puzzleOrderByRegion.get(index);
+        boolean startRegion = rx == startRegionX && ry == startRegionY;
+        SplittableRandom random = new SplittableRandom(seed ^ (rx * 0x9E3779B97F4A7C15L) ^ (ry * 0xC2B2AE3D27D4EB4FL));
+
+        int count = random.nextInt(ROOMS_PER_REGION + 1);
+        if (order != null) {
+            count = Math.max(count, 2);
+        } else if (startRegion) {
+            count = Math.max(count, 1);
+        }
+        Region region = new Region(count);
+        for (int slot = 0; slot < count; slot++) {
+            long position;
+            do {
+                position = Coordinates.pack(rx * REGION_SIZE + random.nextInt(REGION_SIZE), ry * REGION_SIZE + random.nextInt(REGION_SIZE));
+            } while (position == startingPosition || region.slotAt(position, slot) >= 0);
+
+            int adjective = random.nextInt(ADJECTIVES.length);
+            int noun = random.nextInt(NOUNS.length);
+            String name = ADJECTIVES[adjective] + " " + NOUNS[noun] + " " + (rx - startRegionX) + "." + (ry - startRegionY) + "." + slot;
+            boolean puzzleRoom = order != null && slot == 0;
+            char symbol = puzzleRoom ? PUZZLE_SYMBOL : NOUNS[noun].charAt(0);
+            region.rooms[slot] = new Room(index * ROOMS_PER_REGION + slot, name, NOUN_DESCRIPTIONS[noun] + " " + MOODS[adjective],
+                    symbol, new Position(Coordinates.x(position), Coordinates.y(position)));
+
+            int[] ids = new int[FEATURES_PER_ROOM + 1];
+            int size = 0;
+            if (puzzleRoom) {
+                ids[size++] = ItemRegistry.find(triggerNames[order]);
+            } else if (order != null && slot == 1) {
+                ids[size++] = ItemRegistry.find(partNames[order]);
+            } else if (startRegion && slot == 0) {
+                ids[size++] = ItemRegistry.find(FIRST_KEY);
+            }
+            int first = random.nextInt(flavourIds.length);
+            ids[size++] = flavourIds[first];
+            ids[size++] = flavourIds[(first + 1 + random.nextInt(flavourIds.length - 1)) % flavourIds.length];
+            region.setFeatures(slot, Arrays.copyOf(ids, size));
+        }
+        return region;
+    }
+
+    // The region by index, generated and placed on the map if it is not resident.
+    private Region region(int index) {
+        Stripe stripe = stripe(index);
+        synchronized (stripe) {
+            Region region = stripe.regions.get(index);
+            if (region == null) {
+                region = generate(index % regionsPerSide, index / regionsPerSide);
+                for (Room room : region.rooms) {
+                    map.placeRoom(Coordinates.x(room.getPosition()), Coordinates.y(room.getPosition()), room.getSymbol());
+                }
+                stripe.regions.put(index, region);
+            }
+            return region;
+        }
+    }
+
+    // As region(), but also loads or touches the eight neighbours on every call, so the map
+    // around a player stays filled in however long they stay in one region.
+    private Region regionNear(int index) {
+        int rx = index % regionsPerSide;
+        int ry = index / regionsPerSide;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = rx + dx;
+                int ny = ry + dy;
+                if ((dx != 0 || dy != 0) && nx >= 0 && ny >= 0 && nx < regionsPerSide && ny < regionsPerSide) {
+                    region(ny * regionsPerSide + nx);
+                }
+            }
+        }
+        return region(index);
+    }
+
+    private Stripe stripe(int index) {
+        return stripes[(index % regionsPerSide & 3) | (index / regionsPerSide & 3) << 2];
+    }
+
+    public int getResidentRegionCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.regions.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String getFirstObjective() {
+        return firstObjective;
+    }
+
+    @Override
+    public long getStartingPosition() {
+        return startingPosition;
+    }
+
+    // Keys are never given up, so by the last puzzle a player holds every earlier reward plus its part.
+    @Override
+    public int getInventoryCapacity() {
+        return Math.max(Inventory.DEFAULT_CAPACITY, puzzles.length + 2);
+    }
+
+    @Override
+    public Map getMap() {
+        return map;
+    }
+
+    @Override
+    public int getRoomCount() {
+        return regionsPerSide * regionsPerSide * ROOMS_PER_REGION;
+    }
+
+    @Override
+    public Room getRoom(int roomIndex) {
+        if (roomIndex < 0 || roomIndex >= getRoomCount()) {
+            return null;
+        }
+        Room[] rooms = region(roomIndex / ROOMS_PER_REGION).rooms;
+        int slot = roomIndex % ROOMS_PER_REGION;
+        return slot < rooms.length ? rooms[slot] : null;
+    }
+
+    @Override
+    public Room getRoomAtPosition(long pos) {
+        if (!isValidPosition(pos)) {
+            return null;
+        }
+        int index = (Coordinates.y(pos) / REGION_SIZE) * regionsPerSide + Coordinates.x(pos) / REGION_SIZE;
+        Region region = regionNear(index);
+        int slot = region.slotAt(pos, region.rooms.length);
+        return slot < 0 ? null : region.rooms[slot];
+    }
+
+    @Override
+    public boolean isValidPosition(long pos) {
+        int x = Coordinates.x(pos);
+        int y = Coordinates.y(pos);
+        return x >= 0 && x < map.getWidth() && y >= 0 && y < map.getHeight();
+    }
+
+    @Override
+    public RouteTable getRoutes() {
+        return routes;
+    }
+
+    // Accepts a room's full name, a unique prefix of it, or just its "x.y.slot" tag.
+    @Override
+    public Room findRoom(String name) {
+        Room room = findExact(name);
+        return room != null ? room : findByPrefix(name);
+    }
+
+    private Room findExact(String name) {
+        String tag = name.substring(name.lastIndexOf(' ') + 1);
+        String[] parts = tag.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        int rx;
+        int ry;
+        int slot;
+        try {
+            rx = startRegionX + Integer.parseInt(parts[0]);
+            ry = startRegionY + Integer.parseInt(parts[1]);
+            slot = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (rx < 0 || ry < 0 || rx >= regionsPerSide || ry >= regionsPerSide || slot < 0 || slot >= ROOMS_PER_REGION) {
+            return null;
+        }
+        Room room = getRoom((ry * regionsPerSide + rx) * ROOMS_PER_REGION + slot);
+        if (room == null || !(name.equals(tag) || room.getName().equalsIgnoreCase(name))) {
+            return null;
+        }
+        return room;
+    }
+
+    // Names are "adjective noun tag": the words narrow the rooms and the tag narrows the regions, which
+    // are generated without being loaded. The search stops at a second match, and a prefix too loose
+    // to settle within MAX_PREFIX_REGIONS regions is treated as ambiguous.
+    private Room findByPrefix(String prefix) {
+        int space = prefix.indexOf(' ');
+        int tagStart = space < 0 ? -1 : prefix.indexOf(' ', space + 1);
+        if (prefix.isEmpty() || !startsSomeName(tagStart < 0 ? prefix : prefix.substring(0, tagStart + 1))) {
+            return null;
+        }
+        String[] parts = tagStart < 0 ? new String[0] : prefix.substring(tagStart + 1).split("\\.", -1);
+        if (parts.length > 3) {
+            return null;
+        }
+        int[] xs = tagCoordinates(parts, 0, startRegionX);
+        int[] ys = tagCoordinates(parts, 1, startRegionY);
+        Room found = null;
+        int scanned = 0;
+        for (int ry : ys) {
+            for (int rx : xs) {
+                if (++scanned > MAX_PREFIX_REGIONS) {
+                    return null;
+                }
+                for (Room room : generate(rx, ry).rooms) {
+                    if (room.getName().regionMatches(true, 0, prefix, 0, prefix.length())) {
+                        if (found != null) {
+                            return null;
+                        }
+                        found = room;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean startsSomeName(String words) {
+        for (String adjective : ADJECTIVES) {
+            for (String noun : NOUNS) {
+                String name = adjective + " " + noun + " ";
+                if (name.length() >= words.length() && name.regionMatches(true, 0, words, 0, words.length())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Region coordinates whose tag part can follow the prefix: parts before the last one typed must
+    // match in full, the last one only as a prefix, and parts not typed yet match anything.
+    private int[] tagCoordinates(String[] parts, int part, int start) {
+        int[] coordinates = new int[regionsPerSide];
+        int count = 0;
+        for (int c = 0; c < regionsPerSide; c++) {
+            String tag = Integer.toString(c - start);
+            if (part >= parts.length || (part < parts.length - 1 ? tag.equals(parts[part]) : tag.startsWith(parts[part]))) {
+                coordinates[count++] = c;
+            }
+        }
+        return Arrays.copyOf(coordinates, count);
+    }
+
+    @Override
+    public Features getFeatures() {
+        return features;
+    }
+
+    @Override
+    public int[] getRoomsWithItem(int itemId) {
+        return roomsWithItem.getOrDefault(itemId, NO_ROOMS);
+    }
+
+    @Override
+    public int getPuzzleCount() {
+        return puzzles.length;
+    }
+
+    @Override
+    public Puzzle getPuzzle(int order) {
+        return puzzles[order];
+    }
+
+    @Override
+    public int getPuzzleOrder(Puzzle puzzle) {
+        Integer order = puzzleOrderByRegion.get(puzzle.getRoomId() / ROOMS_PER_REGION);
+        return order == null || puzzles[order] != puzzle ? -1 : order;
+    }
+
+    @Override
+    public Puzzle getPuzzleForRoom(int roomIndex) {
+        if (roomIndex < 0 || roomIndex % ROOMS_PER_REGION != 0) {
+            return null;
+        }
+        Integer order = puzzleOrderByRegion.get(roomIndex / ROOMS_PER_REGION);
+        return order == null ? null : puzzles[order];
+    }
+
+    @Override
+    public Puzzle getPreviousPuzzle(Puzzle puzzle) {
+        int order = getPuzzleOrder(puzzle);
+        return order > 0 ? puzzles[order - 1] : null;
+    }
+
+    @Override
+    public long[] getWinItems() {
+        return winItems;
+    }
+
+    // Up to regionsPerStripe regions, evicting the least recently used and clearing its block of the map.
+    private final class Stripe {
+        private final LinkedHashMap<Integer, Region> regions = new LinkedHashMap<>(regionsPerStripe * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Integer, Region> eldest) {
+                if (size() <= regionsPerStripe) {
+                    return false;
+                }
+                int index = eldest.getKey();
+                map.clearBlock((index % regionsPerSide) * REGION_SIZE, (index / regionsPerSide) * REGION_SIZE);
+                return true;
+            }
+        };
+    }
+
+    private static final class Region {
+        private final Room[] rooms;
+        private final int[][] features;
+        private final long[][] masks;
+        private final String[] listings;
+
+        Region(int count) {
+            rooms = new Room[count];
+            features = new int[count][];
+            masks = new long[count][];
+            listings = new String[count];
+        }
+
+        void setFeatures(int slot, int[] ids) {
+            features[slot] = ids;
+            masks[slot] = Inventory.mask(ids);
+            String[] names = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                names[i] = ItemRegistry.name(ids[i]);
+            }
+            listings[slot] = "\nYou can see:\n- " + String.join("\n- ", names);
+        }
+
+        // The slot among the first `limit` rooms standing at the position, or -1.
+        int slotAt(long position, int limit) {
+            for (int slot = 0; slot < limit; slot++) {
+                if (rooms[slot].getPosition() == position) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Looks rooms up through their regions, regenerating any that were evicted.
+    private final class RegionFeatures implements Features {
+
+        private Region regionOf(int roomIndex) {
+            return region(roomIndex / ROOMS_PER_REGION);
+        }
+
+        @Override
+        public boolean hasFeature(int roomIndex, int featureId) {
+            long[] mask = regionOf(roomIndex).masks[roomIndex % ROOMS_PER_REGION];
+            int word = featureId >>> 6;
+            return featureId >= 0 && word < mask.length && (mask[word] & (1L << featureId)) != 0;
+        }
+
+        @Override
+        public int getFeatureCount(int roomIndex) {
+            return regionOf(roomIndex).features[roomIndex % ROOMS_PER_REGION].length;
+        }
+
+        @Override
+        public int getFeature(int roomIndex, int featureIndex) {
+            return regionOf(roomIndex).features[roomIndex % ROOMS_PER_REGION][featureIndex];
+        }
+
+        @Override
+        public String getListing(int roomIndex) {
+            return regionOf(roomIndex).listings[roomIndex % ROOMS_PER_REGION];
+        }
+
+        @Override
+        public CharSequence getDescription(int featureId) {
+            String description = featureId < descriptions.length ? descriptions[featureId] : null;
+            return description != null ? description : "A rather ordinary " + ItemRegistry.name(featureId) + ".";
+        }
+
+        @Override
+        public boolean isCollectible(int itemId) {
+            return itemId >= 0 && itemId < collectible.length && collectible[itemId];
+        }
+    }
+}
@@ -1,58 +1,174 @@
+/**
+ * Items are held as ItemRegistry ids in an immutable Contents chain, newest
+ * item first, with a PersistentBitSet answering membership checks. Changing
+ * the inventory swaps in a new Contents that shares the older items, so any
+ * past version can be kept and put back for free. The same item can be held
+ * more than once; its bit stays set until the last copy is removed. Reading
+ * by slot lays a version out in an array once, so walking every slot stays linear.
+ */
 public class Inventory {
-    private final int MAX_ITEMS = 10;
-    private String [] inventory;
-    private int currentSize;
+    public static final String FULL_MESSAGE = "Your inventory is full.Try remove some items if you need this current item!";
+    public static final int DEFAULT_CAPACITY = 10;
+    private final int capacity;
+    private Contents contents;
 
     public Inventory(){
-        this.inventory = new String[MAX_ITEMS];
-        this.currentSize = 0;
+        this(DEFAULT_CAPACITY);
     }
-    public void addItem(String item){
-        if (currentSize >= MAX_ITEMS){
-            System.out.println("Your inventory is full.Try remove some items if you need this current item!");
-        }
-        else{
-            inventory[currentSize] = item;
-            currentSize ++;
+
+    public Inventory(int capacity){
+        this.capacity = capacity;
+        this.contents = Contents.EMPTY;
+    }
+
+    public boolean addItem(String item){
+        return addItem(ItemRegistry.intern(item));
+    }
+
+    public boolean addItem(int itemId){
+        if (contents.size >= capacity){
+            return false;
         }
+        contents = contents.plus(itemId);
+        return true;
 
     }
-    public int hasItem(String item){
-        for (int i = 0; i < MAX_ITEMS; i++){
-            if (item.equals(inventory[i])){
-                return i;
 
-            }
+    public boolean contains(int itemId){
+        return itemId >= 0 && contents.members.get(itemId);
+    }
+
+    // True when every bit of the mask (see mask()) is held.
+    public boolean containsAll(long[] mask){
+        return contents.members.containsAll(mask);
+    }
+
+    public int hasItem(String item){
+        int itemId = ItemRegistry.find(item);
+        if (!contains(itemId)) {
+            return -1;
         }
-        return -1;
+        return indexOf(itemId);
 
     }
+
     public void removeItem(String item){
-        int position = hasItem(item);
-        if (position == -1){
+        removeItem(ItemRegistry.find(item));
+    }
+
+    // Removes the oldest copy, re-adding the items picked up after it on top of what came before.
+    public void removeItem(int itemId){
+        if (!contains(itemId)) {
             return;
         }
-        for(int i = position;  i < currentSize -1 ;i++){
-            inventory[i] = inventory[i + 1];
+        Contents target = null;
+        for (Contents node = contents; node != Contents.EMPTY; node = node.older) {
+            if (node.itemId == itemId) {
+                target = node;
+            }
+        }
+        int[] newer = new int[contents.size];
+        int count = 0;
+        for (Contents node = contents; node != target; node = node.older) {
+            newer[count++] = node.itemId;
         }
-        inventory[currentSize -1 ] = null;
-        currentSize--;
+        Contents rebuilt = target.older;
+        for (int i = count - 1; i >= 0; i--) {
+            rebuilt = rebuilt.plus(newer[i]);
+        }
+        contents = rebuilt;
 
+    }
 
+    public void clear(){
+        contents = Contents.EMPTY;
+    }
+
+    public int size(){
+        return contents.size;
+    }
+
+    // Slot 0 is the item picked up first.
+    public int getItem(int slot){
+        return contents.slots()[slot];
+    }
+
+    public Contents getContents(){
+        return contents;
+    }
+
+    public void restore(Contents contents){
+        this.contents = contents;
+    }
+
+    private int indexOf(int itemId){
+        int index = -1;
+        int slot = contents.size - 1;
+        for (Contents node = contents; node != Contents.EMPTY; node = node.older, slot--) {
+            if (node.itemId == itemId) {
+                index = slot;
+            }
+        }
+        return index;
     }
 
     public String displayInventory() {
-        if (currentSize == 0) {
+        if (contents.size == 0) {
             return "";
         }
-        String display = "Inventory contents:\n";
-        for (int i = 0; i < currentSize; i++) {
-            display += inventory[i];
-            if (i < currentSize - 1) {
-                display += "\n";
+        int[] slots = contents.slots();
+        String[] names = new String[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            names[slot] = ItemRegistry.name(slots[slot]);
+        }
+        return "Inventory contents:\n" + String.join("\n", names);
+    }
+
+    public static long[] mask(int... itemIds){
+        int max = 0;
+        for (int itemId : itemIds) {
+            max = Math.max(max, itemId);
+        }
+        long[] mask = new long[(max >>> 6) + 1];
+        for (int itemId : itemIds) {
+            mask[itemId >>> 6] |= 1L << itemId;
+        }
+        return mask;
+    }
+
+    // One version of the inventory: its newest item, everything older, and the set of held ids.
+    public static final class Contents {
+        static final Contents EMPTY = new Contents(ItemRegistry.NO_ITEM, null, PersistentBitSet.EMPTY, 0);
+
+        private final int itemId;
+        private final Contents older;
+        private final PersistentBitSet members;
+        private final int size;
+        // The items oldest first, filled in on the first read by slot.
+        private volatile int[] slots;
+
+        private Contents(int itemId, Contents older, PersistentBitSet members, int size) {
+            this.itemId = itemId;
+            this.older = older;
+            this.members = members;
+            this.size = size;
+        }
+
+        private Contents plus(int itemId) {
+            return new Contents(itemId, this, members.with(itemId), size + 1);
+        }
+
+        private int[] slots() {
+            int[] filled = slots;
+            if (filled == null) {
+                filled = new int[size];
+                int slot = size - 1;
+                for (Contents node = this; node != EMPTY; node = node.older) {
+                    filled[slot--] = node.itemId;
+                }
+                slots = filled;
             }
+            return filled;
         }
-        
-        return display;
     }
 }
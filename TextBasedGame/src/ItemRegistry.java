@@ -0,0 +1,113 @@
+/**
+ * Interns item and feature names to small integer ids shared by every
+ * session. Interning takes a lock; lookups are lock-free and only ever see
+ * names whose registration has been published through the volatile count.
+ * Grown arrays are filled before they are stored in their volatile fields,
+ * so a reader that picks up a new array also sees every name copied into it.
+ */
+public final class ItemRegistry {
+    public static final int NO_ITEM = -1;
+
+    private static volatile String[] names = new String[64];
+    private static volatile int[] slots = new int[128];
+    private static volatile int count;
+
+    private ItemRegistry() {
+    }
+
+    public static synchronized int intern(String name) {
+        int existing = find(name);
+        if (existing != NO_ITEM) {
+            return existing;
+        }
+
+        int id = count;
+        if (id == names.length) {
+            String[] grown = new String[names.length * 2];
+            System.arraycopy(names, 0, grown, 0, id);
+            names = grown;
+        }
+        if ((id + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        names[id] = name;
+        insert(slots, name.hashCode(), id);
+        count = id + 1;
+        return id;
+    }
+
+    public static int find(String name) {
+        int published = count;
+        int[] table = slots;
+        String[] known = names;
+        int mask = table.length - 1;
+        for (int slot = spread(name.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < published && id < known.length && known[id].equals(name)) {
+                return id;
+            }
+        }
+        return NO_ITEM;
+    }
+
+    // Same as find(String) but reads the name straight out of a char buffer.
+    public static int find(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int published = count;
+        int[] table = slots;
+        String[] known = names;
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < published && id < known.length && matches(known[id], chars, offset, length)) {
+                return id;
+            }
+        }
+        return NO_ITEM;
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String name(int id) {
+        return names[id];
+    }
+
+    public static int size() {
+        return count;
+    }
+
+    private static void rehash(int capacity) {
+        int[] grown = new int[capacity];
+        for (int id = 0; id < count; id++) {
+            insert(grown, names[id].hashCode(), id);
+        }
+        slots = grown;
+    }
+
+    // Slots hold id + 1 so that zero can mean empty.
+    private static void insert(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.Arrays;
+
+/**
+ * The static mansion: rooms, their features, the puzzle chain and the map grid.
+ * It is built once and shared by every session, so nothing in here may change
+ * after construction. Per-player state lives in GameSession.
+ */
+public final class Mansion implements World {
+    private static final int MAP_SIZE = 10;
+    private static final int INVENTORY_CAPACITY = Inventory.DEFAULT_CAPACITY;
+    private final long startingPosition;
+    private final Room[] rooms;
+    private final String[][] roomFeatures;
+    private final Puzzle[] puzzles;
+    private final Puzzle[] puzzleByRoom;
+    private final Puzzle[] previousByRoom;
+    private final long[] winItems;
+    private final FeatureTable features;
+    private final Map map;
+    private final RoomIndex roomIndex;
+    private final RouteTable routes;
+    private final CommandTrie<Room> roomNames;
+    private final int[][] roomsWithItem;
+
+    Mansion() {
+        startingPosition = Coordinates.pack(3, 5);
+        rooms = new Room[10];
+        roomFeatures = new String[10][];
+        puzzles = new Puzzle[4];
+        puzzleByRoom = new Puzzle[10];
+        previousByRoom = new Puzzle[10];
+        map = new Map(MAP_SIZE, MAP_SIZE);
+
+        initialiseRooms();
+        initialiseFeatures();
+        initialisePuzzles();
+        features = new FeatureTable(roomFeatures, featureDescriptions(), collectibleItems());
+        roomIndex = new RoomIndex(rooms, MAP_SIZE, MAP_SIZE);
+
+        int[] rewards = new int[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzleByRoom[puzzles[i].getRoomId()] = puzzles[i];
+            previousByRoom[puzzles[i].getRoomId()] = i == 0 ? null : puzzles[i - 1];
+            rewards[i] = puzzles[i].getReward();
+        }
+        winItems = Inventory.mask(rewards);
+
+        roomNames = new CommandTrie<>();
+        for (Room room : rooms) {
+            roomNames.put(room.getName().toLowerCase(), room);
+        }
+        roomsWithItem = new int[ItemRegistry.size()][];
+        for (int item = 0; item < roomsWithItem.length; item++) {
+            int[] found = new int[rooms.length];
+            int count = 0;
+            for (Room room : rooms) {
+                if (features.isCollectible(item) && features.hasFeature(room.getId(), item)) {
+                    found[count++] = room.getId();
+                }
+            }
+            roomsWithItem[item] = Arrays.copyOf(found, count);
+        }
+        routes = new RouteTable(this, MAP_SIZE, MAP_SIZE);
+    }
+
+    private void initialiseRooms() {
+        rooms[0] = new Room(0, "Main Laboratory", "A sophisticated lab filled with mysterious equipment and the damaged Chronosphere", 'M', new Position(5, 5));
+        rooms[1] = new Room(1, "Library", "Walls lined with ancient physics books and quantum theory manuscripts", 'L', new Position(3, 3));
+        rooms[2] = new Room(2, "Conservatory", "A glass-enclosed room with strange, time-affected plants", 'C', new Position(2, 2));
+        rooms[3] = new Room(3, "Workshop", "A cluttered room with tools and half-finished inventions", 'W', new Position(8, 8));
+        rooms[4] = new Room(4, "Study", "A cozy room with a desk covered in research notes", 'S', new Position(5, 7));
+        rooms[5] = new Room(5, "Kitchen", "An old Victorian kitchen with modern scientific equipment", 'K', new Position(5, 3));
+        rooms[6] = new Room(6, "Basement Laboratory", "A darker, more experimental lab space", 'B', new Position(2, 8));
+        rooms[7] = new Room(7, "Attic", "A dusty space filled with failed experiments", 'A', new Position(8, 2));
+        rooms[8] = new Room(8, "Garden", "An overgrown garden with temporally-shifted flora", 'G', new Position(7, 6));
+        rooms[9] = new Room(9, "First Bedroom", "Dr. TTN's personal quarters, frozen in time", 'F', new Position(3, 4));
+
+        for (Room room : rooms) {
+            map.placeRoom(Coordinates.x(room.getPosition()), Coordinates.y(room.getPosition()), room.getSymbol());
+            map.addLegend(room.getSymbol(), room.getName());
+        }
+    }
+
+    private void initialiseFeatures() {
+        roomFeatures[0] = new String[]{"chronosphere", "equipment", "research_manual", "broken_keycard"};  
+        roomFeatures[1] = new String[]{"research_manual", "desk", "quantum_equations", "old_diary"};               
+        roomFeatures[2] = new String[]{"plants", "fountain", "strange_flower", "garden_tools"};          
+        roomFeatures[3] = new String[]{"tools", "workbench", "power_core", "circuits"};                 
+        roomFeatures[4] = new String[]{"papers", "chair", "blackboard", "time_calculations"};           
+        roomFeatures[5] = new String[]{"stove", "ingredients", "recipe_book", "crystal_vial"};          
+        roomFeatures[6] = new String[]{"experiments", "tubes", "failed_prototypes", "lab_journal"};     
+        roomFeatures[7] = new String[]{"boxes", "window", "old_photographs", "dusty_machine"};          
+        roomFeatures[8] = new String[]{"strange_flower", "pond", "sundial", "temporal_anomaly"};              
+        roomFeatures[9] = new String[]{"bed", "mirror", "personal_diary", "family_photo"};
+    }
+
+    private String[][] featureDescriptions() {
+        return new String[][]{
+            {"chronosphere", "The Chronosphere is a complex device with swirling temporal energies. It appears damaged."},
+            {"broken_keycard", "A damaged keycard that might be repairable with the right code."},
+            {"research_manual", "Notes mentioning experiments beginning in '4321'... that's odd."},
+            {"circuits", "A complex circuit board with missing connections. Letters P_W_R are visible."},
+            {"recipe_book", "A mysterious recipe book. One page talks about a temporal herb."},
+            {"sundial", "An unusual sundial that seems to be stuck. It feels important to the time loop."},
+            {"power_core", "A sophisticated power source. It needs proper circuit connectivity."},
+            {"strange_flower", "A flower that seems to age and rejuvenate repeatedly."},
+            {"quantum_equations", "Complex equations about temporal mechanics. Some numbers stand out."},
+            {"crystal_vial", "A vial that seems to manipulate time around it."},
+        };
+    }
+
+    private String[] collectibleItems() {
+        return new String[]{"research_manual", "broken_keycard", "repaired_keycard", "power_module",
+            "temporal_essence", "time_shard", "power_core", "crystal_vial", "strange_flower"};
+    }
+
+    private void initialisePuzzles() {
+        puzzles[0] = new Puzzle(0, "broken_keycard", "research_manual", "broken_keycard", "repaired_keycard", "1234", new PuzzleText(
+            "You notice a broken keycard that needs repair...",
+            "\nYou need to collect the research manual from the Library first.\nUse 'collect research_manual' when in the Library.",
+            "\nThe keycard is complex. You need the research manual from the Library first.",
+            "\nUsing the research manual, you begin to understand the keycard mechanism.",
+            "\n=== KEYCARD REPAIR PUZZLE ===\nThe broken keycard needs a 4-digit code to be repaired.\nYour research manual suggests looking for clues in the lab notes.\nHint: The research notes mention: 'The year it all began, but backwards.'",
+            "Enter the 4-digit code: ",
+            "The keycard hums with energy as it repairs itself!",
+            "Nothing happens. That wasn't the correct code.",
+            "Now that you have the research manual, go to the Main Laboratory and collect the broken keycard ('collect broken_keycard')",
+            "Use the research manual to repair the broken keycard (look at 'broken_keycard')"));
+        puzzles[1] = new Puzzle(3, "circuits", "repaired_keycard", "power_core", "power_module", "POWER", new PuzzleText(
+            "The room's circuits seem to need configuration...",
+            "\nYou need the repaired keycard from the Main Laboratory first.",
+            "\nYou need to repair the keycard from the Main Laboratory first.",
+            "\nYou use the repaired keycard to access the circuit controls.",
+            "\n=== CIRCUIT REPAIR PUZZLE ===\nThe circuit board needs a specific sequence of power routing.\nHint: 'P_W_R' - Find the missing letters in the equipment around you.",
+            "Enter the sequence: ",
+            "The circuits light up in sequence! Power is restored!",
+            "The circuits remain dark. That wasn't the correct sequence.",
+            "Go to the Workshop and collect the power core ('collect power_core')",
+            "Use the repaired keycard to fix the circuits in the Workshop (look at 'circuits')"));
+        puzzles[2] = new Puzzle(5, "recipe_book", "power_module", "crystal_vial", "temporal_essence", "THYME", new PuzzleText(
+            "A mysterious recipe book catches your attention...",
+            "\nYou need the power module from the Workshop first.",
+            "\nYou need to restore power from the Workshop first.",
+            "\nWith power restored, you can clearly read the temporal recipe.",
+            "\n=== TEMPORAL RECIPE PUZZLE ===\nThe recipe book contains a strange temporal recipe.\nHint: 'What herb represents time? It's in the garden...'",
+            "Enter the herb name: ",
+            "The recipe glows with temporal energy!",
+            null,
+            "Go to the Kitchen and collect the crystal vial ('collect crystal_vial')",
+            "Use the power module to decode the recipe book (look at 'recipe_book')"));
+        puzzles[3] = new Puzzle(8, "sundial", "temporal_essence", "strange_flower", "time_shard", "12:00", new PuzzleText(
+            "The sundial seems to be stuck at the wrong time...",
+            "\nYou need the temporal essence from the Kitchen first.",
+            "\nYou need the temporal essence from the Kitchen first.",
+            "\nYou apply the temporal essence to the sundial, making it responsive.",
+            "\n=== SUNDIAL PUZZLE ===\nThe sundial seems stuck between times.\nHint: 'When does the loop reset?' (Use format: HH:MM)",
+            "Enter the time: ",
+            "The sundial aligns perfectly! Time energy flows!",
+            "The sundial remains stuck. That wasn't the correct time.",
+            "Go to the Garden and collect the strange flower ('collect strange_flower')",
+            "Use the temporal essence to align the sundial (look at 'sundial')"));
+    }
+
+    @Override
+    public String getFirstObjective() {
+        return "Go to the Library and collect the research manual ('collect research_manual')";
+    }
+
+    @Override
+    public long getStartingPosition() {
+        return startingPosition;
+    }
+
+    @Override
+    public int getInventoryCapacity() {
+        return INVENTORY_CAPACITY;
+    }
+
+    @Override
+    public Map getMap() {
+        return map;
+    }
+
+    @Override
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    @Override
+    public Room getRoom(int roomIndex) {
+        return rooms[roomIndex];
+    }
+
+    @Override
+    public Room getRoomAtPosition(long pos) {
+        int id = roomIndex.roomAt(pos);
+        return id == RoomIndex.NO_ROOM ? null : rooms[id];
+    }
+
+    @Override
+    public boolean isValidPosition(long pos) {
+        int x = Coordinates.x(pos);
+        int y = Coordinates.y(pos);
+        return x >= 0 && x < MAP_SIZE && y >= 0 && y < MAP_SIZE;
+    }
+
+    @Override
+    public RouteTable getRoutes() {
+        return routes;
+    }
+
+    @Override
+    public Room findRoom(String name) {
+        return roomNames.find(name);
+    }
+
+    @Override
+    public int[] getRoomsWithItem(int itemId) {
+        return itemId >= 0 && itemId < roomsWithItem.length ? roomsWithItem[itemId] : new int[0];
+    }
+
+    @Override
+    public Features getFeatures() {
+        return features;
+    }
+
+    @Override
+    public int getPuzzleCount() {
+        return puzzles.length;
+    }
+
+    @Override
+    public Puzzle getPuzzle(int order) {
+        return puzzles[order];
+    }
+
+    @Override
+    public int getPuzzleOrder(Puzzle puzzle) {
+        for (int i = 0; i < puzzles.length; i++) {
+            if (puzzles[i] == puzzle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Puzzle getPuzzleForRoom(int roomIndex) {
+        return roomIndex < 0 ? null : puzzleByRoom[roomIndex];
+    }
+
+    @Override
+    public Puzzle getPreviousPuzzle(Puzzle puzzle) {
+        return previousByRoom[puzzle.getRoomId()];
+    }
+
+    @Override
+    public long[] getWinItems() {
+        return winItems;
+    }
+}
@@ -1,89 +1,192 @@
 public class Map {
-    private char[][] map;
+    private final ChunkedGrid map;
     private int width;
     private int height;
     private final char EMPTY = '.';
     private final char PLAYER = '@';
-    private Position playerPos;
+    private final char OUTSIDE = ' ';
+    public static final int VIEW_WIDTH = 21;
+    public static final int VIEW_HEIGHT = 11;
+    public static final int MAX_ZOOM = 8;
+    private final StringBuilder legend;
+    private volatile EncodedText encodedLegend;
+    // The rendered map without a player marker. Rebuilt after the grid changes,
+    // which only happens while the world is being set up.
+    private volatile char[] template;
+    private int[] rowStarts;
 
     public Map(int width, int height) {
         this.width = width;
         this.height = height;
-        map = new char[height][width]; 
+        map = new ChunkedGrid(EMPTY);
+        legend = new StringBuilder();
+    }
+
+    public void placeRoom(int x, int y, char symbol) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            map.set(x, y, symbol);
+            template = null;
+        }
+    }
+
+    // Clears the ChunkedGrid.CHUNK_SIZE square block holding (x, y) and frees its memory.
+    public void clearBlock(int x, int y) {
+        map.release(x, y);
+        template = null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public char getCell(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return OUTSIDE;
+        }
+        return map.get(x, y);
+    }
+
+    public boolean fitsInView() {
+        return width <= VIEW_WIDTH && height <= VIEW_HEIGHT;
+    }
+
+    public void addLegend(char symbol, String name) {
+        legend.append('\n').append(symbol).append(" = ").append(name);
+        encodedLegend = null;
+    }
 
+    // One "symbol = name" line per room, each starting with a line break, encoded once.
+    public EncodedText getLegend() {
+        EncodedText encoded = encodedLegend;
+        if (encoded == null) {
+            encoded = EncodedText.of(legend.toString());
+            encodedLegend = encoded;
+        }
+        return encoded;
+    }
+
+    public String display(){
+        StringBuilder mapDisplay = new StringBuilder(height * (width + 1));
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                map[y][x] = EMPTY;
+                mapDisplay.append(map.get(x, y));
             }
+            mapDisplay.append('\n');
         }
+        return mapDisplay.toString();
     }
 
-    public void placeRoom(Position pos, char symbol) {
-        if (pos.x >= 0 && pos.x < width && pos.y >= 0 && pos.y < height) {
-            map[pos.y][pos.x] = symbol; 
-        }
+    // The grid is shared by every session, so the player's position is passed in rather than stored.
+    public String displayEnhanced(long playerPos) {
+        StringBuilder mapDisplay = new StringBuilder();
+        displayEnhanced(playerPos, mapDisplay);
+        return mapDisplay.append(GameText.get(GameText.MAP_GUIDE)).append(getLegend()).toString();
     }
 
-    public void updatePlayerPosition(Position pos) {
-        this.playerPos = pos;
+    // Appends the cached grid to target and patches only the player's cell; the guide
+    // (GameText.MAP_GUIDE) and getLegend() are printed after it.
+    public void displayEnhanced(long playerPos, StringBuilder target) {
+        char[] rendered = template;
+        if (rendered == null) {
+            rendered = buildTemplate();
+        }
+
+        int start = target.length();
+        target.append(rendered);
+
+        int playerX = Coordinates.x(playerPos);
+        int playerY = Coordinates.y(playerPos);
+        if (playerX >= 0 && playerX < width && playerY >= 0 && playerY < height) {
+            int cell = start + rowStarts[playerY] + playerX * 2;
+            target.setCharAt(cell, PLAYER);
+            target.setCharAt(cell + 1, map.get(playerX, playerY) != EMPTY ? '*' : ' ');
+        }
     }
 
+    /**
+     * Renders a VIEW_WIDTH x VIEW_HEIGHT window centred on the player. At zoom
+     * level z every character stands for a z x z block of cells and shows the
+     * first room found in it, so the cost is the visible cells times z squared,
+     * independent of the size of the map.
+     */
+    public void displayViewport(long playerPos, int zoom, StringBuilder target) {
+        int playerX = Coordinates.x(playerPos);
+        int playerY = Coordinates.y(playerPos);
+        int left = Math.floorDiv(playerX, zoom) - VIEW_WIDTH / 2;
+        int top = Math.floorDiv(playerY, zoom) - VIEW_HEIGHT / 2;
 
-    public String display(){
-        String mapDisplay = "";
-    for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-            mapDisplay += map[y][x];
+        target.append("Showing x ").append(left * zoom).append("..").append((left + VIEW_WIDTH) * zoom - 1)
+                .append(", y ").append(top * zoom).append("..").append((top + VIEW_HEIGHT) * zoom - 1)
+                .append(" (zoom ").append(zoom).append(")\n");
+        target.append("   +").append("-".repeat(VIEW_WIDTH * 2)).append("+\n");
+
+        for (int row = 0; row < VIEW_HEIGHT; row++) {
+            target.append("   |");
+            int blockY = (top + row) * zoom;
+            for (int column = 0; column < VIEW_WIDTH; column++) {
+                int blockX = (left + column) * zoom;
+                char cell = blockCell(blockX, blockY, zoom);
+                boolean hasPlayer = playerX >= blockX && playerX < blockX + zoom
+                        && playerY >= blockY && playerY < blockY + zoom;
+                if (hasPlayer) {
+                    target.append(PLAYER).append(getCell(playerX, playerY) != EMPTY ? '*' : ' ');
+                } else {
+                    target.append(cell).append(' ');
+                }
+            }
+            target.append("|\n");
         }
-        mapDisplay += "\n";
+        target.append("   +").append("-".repeat(VIEW_WIDTH * 2)).append("+\n");
     }
-    return mapDisplay;
+
+    private char blockCell(int blockX, int blockY, int zoom) {
+        char block = OUTSIDE;
+        for (int y = blockY; y < blockY + zoom; y++) {
+            for (int x = blockX; x < blockX + zoom; x++) {
+                char cell = getCell(x, y);
+                if (cell != EMPTY && cell != OUTSIDE) {
+                    return cell;
+                }
+                if (cell == EMPTY) {
+                    block = EMPTY;
+                }
+            }
+        }
+        return block;
     }
 
-    public String displayEnhanced() {
-        String mapDisplay = "";
-        mapDisplay += "    "; 
+    private synchronized char[] buildTemplate() {
+        if (template != null) {
+            return template;
+        }
+        String border = "   +" + "-".repeat(width * 2) + "+\n";
+        StringBuilder mapDisplay = new StringBuilder();
+        int[] starts = new int[height];
+
+        mapDisplay.append("    ");
         for (int x = 0; x < width; x++) {
-            mapDisplay += x + " ";
+            mapDisplay.append(x).append(' ');
         }
-        mapDisplay += "\n";
-        mapDisplay += "   +" + "-".repeat(width * 2) + "+\n";
-        
+        mapDisplay.append('\n').append(border);
+
         for (int y = 0; y < height; y++) {
-            mapDisplay += String.format("%2d |", y);
-            
+            mapDisplay.append(String.format("%2d |", y));
+            starts[y] = mapDisplay.length();
             for (int x = 0; x < width; x++) {
-                if (playerPos != null && x == playerPos.x && y == playerPos.y) {
-                    if (map[y][x] != EMPTY) {
-                        mapDisplay += PLAYER + "*"; 
-                    } else {
-                        mapDisplay += PLAYER + " ";
-                    }
-                } else {
-                    mapDisplay += map[y][x] + " ";
-                }
+                mapDisplay.append(map.get(x, y)).append(' ');
             }
-            mapDisplay += "|\n";
+            mapDisplay.append("|\n");
         }
-        mapDisplay += "   +" + "-".repeat(width * 2) + "+\n";
-        
-        mapDisplay += "\nGuide\n";
-        mapDisplay += "@ = You are here\n";
-        mapDisplay += "@* = You are in a room\n";
-        mapDisplay += ". = Empty space\n";
-        mapDisplay += "M = Main Laboratory\n";
-        mapDisplay += "L = Library\n";
-        mapDisplay += "C = Conservatory\n";
-        mapDisplay += "W = Workshop\n";
-        mapDisplay += "S = Study\n";
-        mapDisplay += "K = Kitchen\n";
-        mapDisplay += "B = Basement Laboratory\n";
-        mapDisplay += "A = Attic\n";
-        mapDisplay += "G = Garden\n";
-        mapDisplay += "F = First Bedroom";
-        
-        return mapDisplay;
-    }
+        mapDisplay.append(border);
 
-    
+        char[] rendered = new char[mapDisplay.length()];
+        mapDisplay.getChars(0, rendered.length, rendered, 0);
+        rowStarts = starts;
+        template = rendered;
+        return rendered;
+    }
 }
\ No newline at end of file
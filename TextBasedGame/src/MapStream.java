@@ -0,0 +1,174 @@
+/**
+ * Keeps the map pinned to the top of an ANSI terminal while the game text
+ * scrolls underneath it. The stream remembers the frame the client last saw,
+ * and after each turn only the cells that changed are sent, each run behind
+ * an ANSI cursor-positioning sequence. Usually that means two cells when
+ * the player moves. The whole frame is only sent again when it is asked for
+ * or its shape changes, for example on a new zoom level or a taller viewport.
+ *
+ * A stream belongs to one client, not to the game, so a server keeps it with
+ * the connection and hands it to whichever GameSession is serving that client.
+ */
+public final class MapStream {
+    private static final String CSI = "\u001b[";
+    private static final String SAVE_CURSOR = "\u001b7";
+    private static final String RESTORE_CURSOR = "\u001b8";
+    // Unchanged cells shorter than a cursor move are cheaper to resend than to skip.
+    private static final int MERGE_GAP = 6;
+
+    private boolean enabled;
+    private int zoom = 1;
+    private final StringBuilder frame = new StringBuilder();
+    private final StringBuilder update = new StringBuilder();
+    // What the client has on screen; null until the first full redraw.
+    private char[] seen;
+    private int seenLength;
+    private int seenRows;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enable(int zoom) {
+        this.enabled = true;
+        this.zoom = zoom;
+        invalidate();
+    }
+
+    // Sends a full redraw on the next update, e.g. once the client may have lost the screen.
+    public void invalidate() {
+        seen = null;
+    }
+
+    // Hands the whole terminal back to the game text; the last frame scrolls away with it.
+    public void disable(OutputSink out) {
+        if (enabled) {
+            enabled = false;
+            seen = null;
+            out.print(CSI + "r" + CSI + "999;1H");
+        }
+    }
+
+    // Sends whatever the client needs to catch up with the map as it is now.
+    public void update(Map map, long playerPos, OutputSink out) {
+        if (!enabled) {
+            return;
+        }
+        frame.setLength(0);
+        if (zoom == 1 && map.fitsInView()) {
+            map.displayEnhanced(playerPos, frame);
+        } else {
+            map.displayViewport(playerPos, zoom, frame);
+        }
+
+        update.setLength(0);
+        int rows = countRows(frame);
+        if (seen == null || rows != seenRows) {
+            redraw(rows);
+        } else {
+            diff();
+        }
+        if (update.length() > 0) {
+            out.print(update);
+        }
+        remember(rows);
+    }
+
+    // Clears the screen, draws the frame at the top and leaves the rows below it to scroll.
+    // Setting the scroll region moves the cursor home, so it is put back at the bottom.
+    private void redraw(int rows) {
+        update.append(CSI).append('r').append(CSI).append("2J");
+        int start = 0;
+        for (int row = 1; row <= rows; row++) {
+            int end = lineEnd(frame, start);
+            moveTo(row, 1);
+            update.append(frame, start, end);
+            start = end + 1;
+        }
+        update.append(CSI).append(rows + 2).append(";r");
+        update.append(CSI).append("999;1H");
+    }
+
+    private void diff() {
+        int mark = update.length();
+        update.append(SAVE_CURSOR);
+        int oldStart = 0;
+        int newStart = 0;
+        for (int row = 1; newStart < frame.length(); row++) {
+            int oldEnd = lineEnd(seen, seenLength, oldStart);
+            int newEnd = lineEnd(frame, newStart);
+            if (oldEnd - oldStart != newEnd - newStart) {
+                // A header whose numbers grew a digit: resend the line and clear what is left of the old one.
+                moveTo(row, 1);
+                update.append(frame, newStart, newEnd).append(CSI).append('K');
+            } else {
+                diffRow(row, oldStart, newStart, newEnd - newStart);
+            }
+            oldStart = oldEnd + 1;
+            newStart = newEnd + 1;
+        }
+        if (update.length() == mark + SAVE_CURSOR.length()) {
+            update.setLength(mark);
+        } else {
+            update.append(RESTORE_CURSOR);
+        }
+    }
+
+    private void diffRow(int row, int oldStart, int newStart, int length) {
+        int column = 0;
+        while (column < length) {
+            if (seen[oldStart + column] == frame.charAt(newStart + column)) {
+                column++;
+                continue;
+            }
+            int end = column + 1;
+            for (int next = end; next < length && next - end < MERGE_GAP; next++) {
+                if (seen[oldStart + next] != frame.charAt(newStart + next)) {
+                    end = next + 1;
+                }
+            }
+            moveTo(row, column + 1);
+            update.append(frame, newStart + column, newStart + end);
+            column = end;
+        }
+    }
+
+    private void moveTo(int row, int column) {
+        update.append(CSI).append(row).append(';').append(column).append('H');
+    }
+
+    private void remember(int rows) {
+        if (seen == null || seen.length < frame.length()) {
+            seen = new char[frame.length()];
+        }
+        frame.getChars(0, frame.length(), seen, 0);
+        seenLength = frame.length();
+        seenRows = rows;
+    }
+
+    private static int countRows(CharSequence text) {
+        int rows = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static int lineEnd(CharSequence text, int start) {
+        int end = start;
+        while (text.charAt(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int lineEnd(char[] text, int length, int start) {
+        int end = start;
+        while (end < length && text[end] != '\n') {
+            end++;
+        }
+        return end;
+    }
+}
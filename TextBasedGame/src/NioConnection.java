@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class NioConnection implements OutputSink {
+    public static final String PROMPT = "\nEnter command: ";
+    private static final int READ_BUFFER_SIZE = 512;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final SocketChannel channel;
+    private final SessionManager sessions;
+    private final String sessionId;
+    private final ByteBuffer readBuffer;
+    private final TurnBuffer output;
+    // Outlives any one GameSession object, so a hibernated session comes back knowing what the client sees.
+    private final MapStream mapStream;
+    private byte[] line;
+    private int lineLength;
+    private boolean closing;
+
+    public NioConnection(SocketChannel channel, SessionManager sessions) {
+        this.channel = channel;
+        this.sessions = sessions;
+        this.sessionId = "conn-" + NEXT_ID.incrementAndGet();
+        this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        this.output = new TurnBuffer();
+        this.mapStream = new MapStream();
+        this.line = new byte[64];
+    }
+
+    public void start(SelectionKey key) throws IOException {
+        GameSession session = sessions.create(sessionId, this);
+        session.setMapStream(mapStream);
+        session.start();
+        sessions.release(sessionId);
+        print(PROMPT);
+        flush(key);
+    }
+
+    // Reads whatever is available and runs every complete line through the session.
+    public void onReadable(SelectionKey key) throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            close(key);
+            return;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining() && !closing) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                handleLine();
+            } else if (b != '\r') {
+                appendToLine(b);
+            }
+        }
+        readBuffer.clear();
+        flush(key);
+    }
+
+    public void onWritable(SelectionKey key) throws IOException {
+        flush(key);
+    }
+
+    private void handleLine() {
+        String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+        lineLength = 0;
+
+        // The session may have been hibernated while the connection sat idle.
+        GameSession session = sessions.acquire(sessionId, this);
+        if (session == null) {
+            closing = true;
+            return;
+        }
+        try {
+            session.setMapStream(mapStream);
+            session.processLine(text);
+        } finally {
+            sessions.release(sessionId);
+        }
+        if (!session.isRunning()) {
+            closing = true;
+        } else if (!session.isAwaitingAnswer()) {
+            print(PROMPT);
+        }
+    }
+
+    private void appendToLine(byte b) {
+        if (lineLength == MAX_LINE_LENGTH) {
+            return;
+        }
+        if (lineLength == line.length) {
+            byte[] grown = new byte[Math.min(line.length * 2, MAX_LINE_LENGTH)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        line[lineLength++] = b;
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        output.print(text);
+    }
+
+    // Sends everything the last lines produced in one gathering write and only asks
+    // for OP_WRITE while the socket is backed up.
+    private void flush(SelectionKey key) throws IOException {
+        if (!output.writeTo(channel)) {
+            key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        if (closing) {
+            close(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    public void close(SelectionKey key) {
+        key.cancel();
+        sessions.discard(sessionId);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do for a connection that is already gone.
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NioEventLoop implements Runnable {
+    private final Selector selector;
+    private final SessionManager sessions;
+    private final Queue<SocketChannel> pending;
+    private volatile boolean running;
+
+    public NioEventLoop(SessionManager sessions) throws IOException {
+        this.selector = Selector.open();
+        this.sessions = sessions;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.running = true;
+    }
+
+    // Called from the acceptor thread; the channel is registered on this loop's own thread.
+    public void register(SocketChannel channel) {
+        pending.add(channel);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.out.println("Event loop stopped: " + e.getMessage());
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = pending.poll()) != null) {
+            NioConnection connection = new NioConnection(channel, sessions);
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.start(key);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // The client is already gone.
+                }
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.onReadable(key);
+            } else if (key.isWritable()) {
+                connection.onWritable(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.close(key);
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                ((NioConnection) key.attachment()).close(key);
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            // Shutting down anyway.
+        }
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class NioGameServer implements GameServer {
+    private static final int DEFAULT_PORT = 4000;
+    private static final int BACKLOG = 1024;
+
+    private final int port;
+    private final NioEventLoop[] loops;
+    private final SessionManager sessions;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public NioGameServer(int port, int loopCount) throws IOException {
+        this(port, loopCount, new SessionManager(World.MANSION));
+    }
+
+    public NioGameServer(int port, int loopCount, SessionManager sessions) throws IOException {
+        this.port = port;
+        this.sessions = sessions;
+        this.loops = new NioEventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new NioEventLoop(sessions);
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        running = true;
+
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "game-loop-" + i);
+            thread.start();
+        }
+        acceptor = new Thread(this::acceptLoop, "game-acceptor");
+        acceptor.start();
+    }
+
+    @Override
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // Connections are spread across the event loops round-robin.
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (NioEventLoop loop : loops) {
+            loop.stop();
+        }
+        sessions.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int loopCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxResident = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        long idleMillis = args.length > 3 ? Long.parseLong(args[3]) * 1000 : 0;
+
+        SessionManager sessions = new SessionManager(World.MANSION);
+        if (maxResident != Integer.MAX_VALUE || idleMillis > 0) {
+            // Connections have no identity beyond their lifetime, so hibernated sessions need not outlive the process.
+            Path store = Files.createTempFile("sessions", ".store");
+            store.toFile().deleteOnExit();
+            Files.delete(store);
+            sessions = new SessionManager(World.MANSION, maxResident, idleMillis, store);
+        }
+        NioGameServer server = new NioGameServer(port, loopCount, sessions);
+        server.start();
+        System.out.println("Temporal Paradox server listening on port " + server.getPort()
+                + " with " + loopCount + " event loops");
+    }
+}
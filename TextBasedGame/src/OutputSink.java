@@ -0,0 +1,9 @@
+public interface OutputSink {
+
+    void print(CharSequence text);
+
+    default void println(CharSequence text) {
+        print(text);
+        print("\n");
+    }
+}
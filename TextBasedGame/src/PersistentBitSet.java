@@ -0,0 +1,121 @@
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of non-negative ints. Bits live in 64-bit leaves under a
+ * 32-way trie that only grows as deep as the highest bit needs, so a set of
+ * a few hundred rooms is one or two levels. with() and without() copy just
+ * the path to the changed leaf and share everything else with the old set,
+ * which makes keeping every past version cheap.
+ */
+public final class PersistentBitSet {
+    public static final PersistentBitSet EMPTY = new PersistentBitSet(null, 0, 0);
+    private static final int BRANCH_BITS = 5;
+    private static final int BRANCH_MASK = (1 << BRANCH_BITS) - 1;
+
+    // Either a Leaf or an Object[] of children, any of which may be null.
+    private final Object root;
+    private final int levels;
+    private final int count;
+
+    private PersistentBitSet(Object root, int levels, int count) {
+        this.root = root;
+        this.levels = levels;
+        this.count = count;
+    }
+
+    public boolean get(int bit) {
+        return (word(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    // The 64 bits starting at wordIndex * 64.
+    public long word(int wordIndex) {
+        if (wordIndex >>> (BRANCH_BITS * levels) != 0) {
+            return 0;
+        }
+        Object node = root;
+        for (int level = levels; level > 0 && node != null; level--) {
+            node = ((Object[]) node)[(wordIndex >>> (BRANCH_BITS * (level - 1))) & BRANCH_MASK];
+        }
+        return node == null ? 0 : ((Leaf) node).bits;
+    }
+
+    public int cardinality() {
+        return count;
+    }
+
+    // True when every bit of the mask (see Inventory.mask()) is set.
+    public boolean containsAll(long[] mask) {
+        for (int i = 0; i < mask.length; i++) {
+            if ((word(i) & mask[i]) != mask[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Calls the action with every set bit in ascending order, skipping empty subtrees.
+    public void forEach(IntConsumer action) {
+        forEach(root, levels, 0, action);
+    }
+
+    private static void forEach(Object node, int level, int firstWord, IntConsumer action) {
+        if (node == null) {
+            return;
+        }
+        if (level == 0) {
+            long bits = ((Leaf) node).bits;
+            while (bits != 0) {
+                action.accept(firstWord * 64 + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+            return;
+        }
+        Object[] children = (Object[]) node;
+        for (int i = 0; i < children.length; i++) {
+            forEach(children[i], level - 1, firstWord + (i << (BRANCH_BITS * (level - 1))), action);
+        }
+    }
+
+    public PersistentBitSet with(int bit) {
+        if (get(bit)) {
+            return this;
+        }
+        int wordIndex = bit >>> 6;
+        Object grownRoot = root;
+        int grownLevels = levels;
+        while (wordIndex >>> (BRANCH_BITS * grownLevels) != 0) {
+            Object[] branch = new Object[1 << BRANCH_BITS];
+            branch[0] = grownRoot;
+            grownRoot = branch;
+            grownLevels++;
+        }
+        return new PersistentBitSet(set(grownRoot, grownLevels, wordIndex, 1L << bit, true), grownLevels, count + 1);
+    }
+
+    public PersistentBitSet without(int bit) {
+        if (!get(bit)) {
+            return this;
+        }
+        return new PersistentBitSet(set(root, levels, bit >>> 6, 1L << bit, false), levels, count - 1);
+    }
+
+    private static Object set(Object node, int level, int wordIndex, long mask, boolean value) {
+        if (level == 0) {
+            long bits = node == null ? 0 : ((Leaf) node).bits;
+            bits = value ? bits | mask : bits & ~mask;
+            return bits == 0 ? null : new Leaf(bits);
+        }
+        Object[] children = node == null ? new Object[1 << BRANCH_BITS] : ((Object[]) node).clone();
+        int index = (wordIndex >>> (BRANCH_BITS * (level - 1))) & BRANCH_MASK;
+        children[index] = set(children[index], level - 1, wordIndex, mask, value);
+        return children;
+    }
+
+    private static final class Leaf {
+        private final long bits;
+
+        Leaf(long bits) {
+            this.bits = bits;
+        }
+    }
+}
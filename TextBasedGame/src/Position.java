@@ -1,12 +1,16 @@
 public class Position {
 
-    public int x;
-    public int y ;
+    public final int x;
+    public final int y ;
 
     public Position(int x, int y){
         this.x = x;
         this.y = y;
         
     }
+
+    public long pack(){
+        return Coordinates.pack(x, y);
+    }
     
 }
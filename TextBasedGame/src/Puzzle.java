@@ -0,0 +1,69 @@
+/**
+ * One step of a puzzle chain. Looking at the trigger feature in the puzzle's
+ * room starts it once the key item (the previous step's reward) and the part
+ * item (collected in the room) are held. A correct answer consumes the part
+ * and grants the reward.
+ */
+public class Puzzle {
+    private final int roomId;
+    private final int trigger;
+    private final int keyItem;
+    private final int partItem;
+    private final int reward;
+    private final String answer;
+    private final String missingPart;
+    private final String lookHint;
+    private final PuzzleText text;
+
+    public Puzzle(int roomId, String trigger, String keyItem, String partItem, String reward, String answer, PuzzleText text) {
+        this.roomId = roomId;
+        this.trigger = ItemRegistry.intern(trigger);
+        this.keyItem = ItemRegistry.intern(keyItem);
+        this.partItem = ItemRegistry.intern(partItem);
+        this.reward = ItemRegistry.intern(reward);
+        this.answer = answer;
+        this.missingPart = "\nYou need to collect the " + partItem.replace('_', ' ') + " first. Use 'collect " + partItem + "'";
+        this.lookHint = "Hint: Look at the '" + trigger + "' to attempt the puzzle.";
+        this.text = text;
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public int getTrigger() {
+        return trigger;
+    }
+
+    public int getKeyItem() {
+        return keyItem;
+    }
+
+    public int getPartItem() {
+        return partItem;
+    }
+
+    public int getReward() {
+        return reward;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public boolean isCorrect(String attempt) {
+        return answer.equalsIgnoreCase(attempt.trim());
+    }
+
+    public String getMissingPartMessage() {
+        return missingPart;
+    }
+
+    public String getLookHint() {
+        return lookHint;
+    }
+
+    public PuzzleText getText() {
+        return text;
+    }
+}
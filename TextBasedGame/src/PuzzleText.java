@@ -0,0 +1,30 @@
+/**
+ * Everything a puzzle says to the player. Messages that start a new paragraph
+ * include their own leading newline; multi-line messages use embedded newlines.
+ */
+public class PuzzleText {
+    public final String arrival;
+    public final String locked;
+    public final String missingKey;
+    public final String begin;
+    public final String intro;
+    public final String prompt;
+    public final String success;
+    public final String failure;
+    public final String collectObjective;
+    public final String solveObjective;
+
+    public PuzzleText(String arrival, String locked, String missingKey, String begin, String intro,
+                      String prompt, String success, String failure, String collectObjective, String solveObjective) {
+        this.arrival = arrival;
+        this.locked = locked;
+        this.missingKey = missingKey;
+        this.begin = begin;
+        this.intro = intro;
+        this.prompt = prompt;
+        this.success = success;
+        this.failure = failure;
+        this.collectObjective = collectObjective;
+        this.solveObjective = solveObjective;
+    }
+}
@@ -1,20 +1,25 @@
 public class Room {
+    private int id;
     private String name;
-    private String description;
+    private CharSequence description;
     private char symbol;
-    private Position position;
+    private long position;
     
-    public Room(String name, String description, char symbol, Position position){
+    public Room(int id, String name, CharSequence description, char symbol, Position position){
+        this.id = id;
         this.name = name;
         this.description = description;
         this.symbol = symbol;
-        this.position = position;
+        this.position = position.pack();
     }
     
+    public int getId(){
+        return id;
+    }
     public String getName(){
         return name;
     }
-    public String getDescription(){
+    public CharSequence getDescription(){
         return description;
 
     }
@@ -22,7 +27,7 @@ public class Room {
     public char getSymbol(){
         return symbol;
     }
-    public Position getPosition(){
+    public long getPosition(){
         return position;
         
     }
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+/**
+ * Constant-time lookup from a map cell to the id of the room on it. Small
+ * bounded maps use a dense grid of ids; large or sparse ones use an
+ * open-addressing table keyed by the packed (x, y) coordinate.
+ */
+public class RoomIndex {
+    public static final int NO_ROOM = -1;
+    private static final long MAX_DENSE_CELLS = 1 << 20;
+
+    private final int width;
+    private final int height;
+    private final int[] grid;
+    private final long[] keys;
+    private final int[] ids;
+    private final int mask;
+
+    public RoomIndex(Room[] rooms, int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        if ((long) width * height <= MAX_DENSE_CELLS) {
+            grid = new int[width * height];
+            Arrays.fill(grid, NO_ROOM);
+            keys = null;
+            ids = null;
+            mask = 0;
+            for (Room room : rooms) {
+                int x = Coordinates.x(room.getPosition());
+                int y = Coordinates.y(room.getPosition());
+                if (inBounds(x, y) && grid[y * width + x] == NO_ROOM) {
+                    grid[y * width + x] = room.getId();
+                }
+            }
+        } else {
+            grid = null;
+            int capacity = Integer.highestOneBit(Math.max(4, rooms.length * 2) - 1) << 1;
+            keys = new long[capacity];
+            ids = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(ids, NO_ROOM);
+            for (Room room : rooms) {
+                int x = Coordinates.x(room.getPosition());
+                int y = Coordinates.y(room.getPosition());
+                if (inBounds(x, y)) {
+                    insert(room.getPosition(), room.getId());
+                }
+            }
+        }
+    }
+
+    public int roomAt(long position) {
+        return roomAt(Coordinates.x(position), Coordinates.y(position));
+    }
+
+    public int roomAt(int x, int y) {
+        if (!inBounds(x, y)) {
+            return NO_ROOM;
+        }
+        if (grid != null) {
+            return grid[y * width + x];
+        }
+        long key = Coordinates.pack(x, y);
+        for (int slot = hash(key) & mask; ids[slot] != NO_ROOM; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return ids[slot];
+            }
+        }
+        return NO_ROOM;
+    }
+
+    private void insert(long key, int id) {
+        int slot = hash(key) & mask;
+        while (ids[slot] != NO_ROOM) {
+            if (keys[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        ids[slot] = id;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
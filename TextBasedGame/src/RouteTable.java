@@ -0,0 +1,317 @@
+import java.util.Arrays;
+
+/**
+ * Shortest walking routes to rooms. At world load a breadth-first distance
+ * field is built for every room, treating every other puzzle room as a wall
+ * since a player who walks into an unsolved one cannot leave it. A route is
+ * then read off the field by always stepping to a neighbour one closer.
+ *
+ * Worlds too big for a field per room, or players for whom a puzzle room
+ * they have already solved may be a shortcut, get an A* search instead, walled
+ * by just the puzzles that player still has open. Puzzle rooms are the only
+ * cells a route may have to go around, and any of them may have been solved,
+ * so a landmark bound would come out no tighter than the Manhattan distance
+ * the search already uses. What is built up front instead is an index of the
+ * puzzle cells, so neither the fields nor the search ever ask the world what
+ * stands on a cell; on a generated world that would mean loading regions.
+ */
+public class RouteTable {
+    private static final long MAX_TABLE_CELLS = 1 << 22;
+    private static final int MAX_SEARCH_CELLS = 1 << 20;
+    private static final int UNREACHABLE = -1;
+    private static final Direction[] NO_STEPS = new Direction[0];
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Returned when the search runs out of budget before finding or ruling out a route.
+    public static final Direction[] GAVE_UP = new Direction[0];
+
+    private final World world;
+    private final int width;
+    private final int height;
+    private final Room[] puzzleRooms;
+    private final RoomIndex walls;
+    private final int[][] distances;
+
+    // Built last in the world's constructor, once its rooms and puzzles can be looked up.
+    public RouteTable(World world, int width, int height) {
+        this.world = world;
+        this.width = width;
+        this.height = height;
+
+        puzzleRooms = new Room[world.getPuzzleCount()];
+        for (int order = 0; order < puzzleRooms.length; order++) {
+            puzzleRooms[order] = world.getRoom(world.getPuzzle(order).getRoomId());
+        }
+        walls = new RoomIndex(puzzleRooms, width, height);
+
+        int roomCount = world.getRoomCount();
+        if ((double) width * height * roomCount <= MAX_TABLE_CELLS) {
+            distances = new int[roomCount][];
+            for (int room = 0; room < roomCount; room++) {
+                distances[room] = distanceField(world.getRoom(room));
+            }
+        } else {
+            distances = null;
+        }
+    }
+
+    /**
+     * Returns the steps from a position to the target room, null when every
+     * way there crosses a puzzle room the player has not solved yet, or
+     * GAVE_UP when a huge world is too big to search for the route.
+     */
+    public Direction[] route(long from, int targetRoom, PersistentBitSet solvedPuzzles) {
+        long goal = world.getRoom(targetRoom).getPosition();
+        if (from == goal) {
+            return NO_STEPS;
+        }
+        if (distances != null) {
+            int[] field = distances[targetRoom];
+            int x = Coordinates.x(from);
+            int y = Coordinates.y(from);
+            if (inBounds(x, y) && field[y * width + x] != UNREACHABLE && !solvedShortcut(from, goal, field[y * width + x], solvedPuzzles)) {
+                return walk(field, x, y);
+            }
+        }
+        return search(from, goal, solvedPuzzles);
+    }
+
+    // Walls may get a distance so a route can start on a solved puzzle room, but the search never expands through them.
+    private int[] distanceField(Room target) {
+        int[] field = new int[width * height];
+        Arrays.fill(field, UNREACHABLE);
+        // Every cell is queued at most once, so the queue never needs more room than the grid.
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        int start = Coordinates.y(target.getPosition()) * width + Coordinates.x(target.getPosition());
+        field[start] = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            for (Direction direction : DIRECTIONS) {
+                int nx = x + direction.dx;
+                int ny = y + direction.dy;
+                if (!inBounds(nx, ny) || field[ny * width + nx] != UNREACHABLE) {
+                    continue;
+                }
+                field[ny * width + nx] = field[cell] + 1;
+                if (!isWall(nx, ny)) {
+                    queue[tail++] = ny * width + nx;
+                }
+            }
+        }
+        return field;
+    }
+
+    private Direction[] walk(int[] field, int x, int y) {
+        Direction[] steps = new Direction[field[y * width + x]];
+        for (int i = 0; i < steps.length; i++) {
+            int here = field[y * width + x];
+            for (Direction direction : DIRECTIONS) {
+                int nx = x + direction.dx;
+                int ny = y + direction.dy;
+                if (inBounds(nx, ny) && field[ny * width + nx] == here - 1 && (here == 1 || !isWall(nx, ny))) {
+                    steps[i] = direction;
+                    x = nx;
+                    y = ny;
+                    break;
+                }
+            }
+        }
+        return steps;
+    }
+
+    // The fields wall off solved puzzle rooms too. A way through one can only beat the field's
+    // route if going via that room is shorter even in a straight line.
+    private boolean solvedShortcut(long from, long goal, int walled, PersistentBitSet solvedPuzzles) {
+        for (Room room : puzzleRooms) {
+            if (solvedPuzzles.get(room.getId()) && manhattan(from, room.getPosition()) + manhattan(room.getPosition(), goal) < walled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWall(int x, int y) {
+        return walls.roomAt(x, y) != RoomIndex.NO_ROOM;
+    }
+
+    // A* over packed positions with the Manhattan distance, which never overestimates on a 4-way grid.
+    // Ties go to the entry furthest along, so open floor is crossed in a line instead of flooded.
+    private Direction[] search(long from, long goal, PersistentBitSet solvedPuzzles) {
+        Visited visited = new Visited();
+        OpenList open = new OpenList();
+        visited.put(from, 0, 0);
+        open.add(manhattan(from, goal), 0, from);
+        boolean outOfBudget = false;
+
+        while (open.size > 0) {
+            long position = open.positions[0];
+            int reached = open.steps();
+            open.poll();
+            int slot = visited.find(position);
+            if (reached > visited.steps[slot]) {
+                continue;
+            }
+            if (position == goal) {
+                return unwind(visited, from, goal);
+            }
+            int room = walls.roomAt(position);
+            if (position != from && room != RoomIndex.NO_ROOM && !solvedPuzzles.get(room)) {
+                continue;
+            }
+
+            int steps = reached + 1;
+            for (Direction direction : DIRECTIONS) {
+                int nx = Coordinates.x(position) + direction.dx;
+                int ny = Coordinates.y(position) + direction.dy;
+                if (!inBounds(nx, ny)) {
+                    continue;
+                }
+                long next = Coordinates.pack(nx, ny);
+                int known = visited.find(next);
+                if (known < 0 && visited.size >= MAX_SEARCH_CELLS) {
+                    outOfBudget = true;
+                } else if (known < 0 || steps < visited.steps[known]) {
+                    visited.put(next, steps, direction.ordinal());
+                    open.add(steps + manhattan(next, goal), steps, next);
+                }
+            }
+        }
+        return outOfBudget ? GAVE_UP : null;
+    }
+
+    private Direction[] unwind(Visited visited, long from, long goal) {
+        int length = visited.steps[visited.find(goal)];
+        Direction[] steps = new Direction[length];
+        long position = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            Direction direction = DIRECTIONS[visited.cameBy[visited.find(position)]];
+            steps[i] = direction;
+            position = Coordinates.pack(Coordinates.x(position) - direction.dx, Coordinates.y(position) - direction.dy);
+        }
+        return steps;
+    }
+
+    private static long manhattan(long a, long b) {
+        return Math.abs((long) Coordinates.x(a) - Coordinates.x(b)) + Math.abs((long) Coordinates.y(a) - Coordinates.y(b));
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    // Steps and the direction of the last one for every position reached, keyed by the packed position.
+    private static final class Visited {
+        private long[] keys = new long[1024];
+        private int[] steps = new int[1024];
+        private byte[] cameBy = new byte[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        // The slot holding the position, or -1.
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = RoomIndex.hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int reached, int direction) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = RoomIndex.hash(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            steps[slot] = reached;
+            cameBy[slot] = (byte) direction;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldSteps = steps;
+            byte[] oldCameBy = cameBy;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            steps = new int[keys.length];
+            cameBy = new byte[keys.length];
+            used = new boolean[keys.length];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    put(oldKeys[slot], oldSteps[slot], oldCameBy[slot]);
+                }
+            }
+        }
+    }
+
+    // Binary min-heap of positions. The estimate sits in the high half of each priority and the
+    // complement of the steps taken in the low half, so equal estimates favour the longer path.
+    private static final class OpenList {
+        private long[] priorities = new long[1024];
+        private long[] positions = new long[1024];
+        private int size;
+
+        void add(long estimate, int reached, long position) {
+            if (size == priorities.length) {
+                priorities = Arrays.copyOf(priorities, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            long priority = estimate << 32 | (0xFFFFFFFFL - reached);
+            int child = size++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (priorities[parent] <= priority) {
+                    break;
+                }
+                priorities[child] = priorities[parent];
+                positions[child] = positions[parent];
+                child = parent;
+            }
+            priorities[child] = priority;
+            positions[child] = position;
+        }
+
+        // Steps taken to reach the head of the heap.
+        int steps() {
+            return (int) (0xFFFFFFFFL - (priorities[0] & 0xFFFFFFFFL));
+        }
+
+        void poll() {
+            long priority = priorities[--size];
+            long position = positions[size];
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priorities[child] >= priority) {
+                    break;
+                }
+                priorities[parent] = priorities[child];
+                positions[parent] = positions[child];
+                parent = child;
+            }
+            priorities[parent] = priority;
+            positions[parent] = position;
+        }
+    }
+}
@@ -21,6 +21,20 @@
 
         }
         
+        public int getRoomsVisited(){
+            return roomsVisited;
+        }
+
+        public int getPuzzlesSolved(){
+            return puzzlesSolved;
+        }
+
+        // Puts the counters back as they were when a snapshot was taken.
+        public void restore(int roomsVisited, int puzzlesSolved){
+            this.roomsVisited = roomsVisited;
+            this.puzzlesSolved = puzzlesSolved;
+        }
+
         public double getScore(){
             return startingScore + (puzzlesSolved * PUZZLE_VALUE);
 
@@ -0,0 +1,103 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the server models at several session counts. The server runs in
+ * this JVM and ClientSimulator runs as a child process, so the heap and RSS
+ * figures only contain the server side. Large runs need a raised open file
+ * limit, e.g. ulimit -n 250000.
+ */
+public class ServerBenchmark {
+    public static final String READY = "READY";
+    private static final Pattern P99 = Pattern.compile("p99=([0-9.]+)ms");
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = (args.length > 0 ? args[0] : "nio,virtual,platform").split(",");
+        String[] sessionCounts = (args.length > 1 ? args[1] : "10000,50000,100000").split(",");
+        int active = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int commands = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        System.out.println(String.format("%-9s %9s %14s %14s %10s", "mode", "sessions", "heap/session", "rss/session", "p99"));
+        for (String mode : modes) {
+            for (String count : sessionCounts) {
+                System.out.println(run(mode, Integer.parseInt(count), active, commands));
+            }
+        }
+    }
+
+    private static String run(String mode, int sessions, int active, int commands) throws Exception {
+        GameServer server = mode.equals("nio")
+                ? new NioGameServer(0, Runtime.getRuntime().availableProcessors())
+                : new ThreadedGameServer(0, mode);
+        server.start();
+
+        long heapBefore = usedHeapAfterGc();
+        long rssBefore = residentBytes();
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        int localAddresses = Math.max(1, sessions / 25000 + 1);
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                "ClientSimulator", "127.0.0.1", String.valueOf(server.getPort()), String.valueOf(sessions),
+                String.valueOf(active), String.valueOf(commands), String.valueOf(localAddresses), "hold"));
+        Process client = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        long heapPerSession = 0;
+        long rssPerSession = 0;
+        String result = "";
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream toClient = client.getOutputStream()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(READY)) {
+                    Thread.sleep(1000);
+                    heapPerSession = (usedHeapAfterGc() - heapBefore) / sessions;
+                    rssPerSession = (residentBytes() - rssBefore) / sessions;
+                    toClient.write('\n');
+                    toClient.flush();
+                } else {
+                    result = line;
+                }
+            }
+        }
+        client.waitFor();
+        server.stop();
+
+        Matcher p99 = P99.matcher(result);
+        String latency = p99.find() ? p99.group(1) + "ms" : "n/a";
+        String label = server instanceof ThreadedGameServer ? ((ThreadedGameServer) server).getMode() : mode;
+        return String.format("%-9s %9d %13dB %13dB %10s", label, sessions, heapPerSession, rssPerSession, latency);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Linux only; reports 0 elsewhere.
+    private static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Fall through.
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps at most maxResident sessions on the heap. The least recently used
+ * session beyond that bound, and any session idle for longer than the idle
+ * timeout, is written to a SessionStore and dropped; acquire() brings it back
+ * from the store on its next command. Sessions are pinned between acquire()
+ * and release() so one is never evicted while a command is running on it.
+ *
+ * Ids are spread over STRIPES independently locked LRU maps, so event loops
+ * serving different sessions rarely wait on each other, and least recently
+ * used is only exact within a stripe. A stripe lock is only held to update its
+ * map and pins. Writing a session to the store or reading one back happens
+ * under that session's own lock, with an evicting or loading entry left in the
+ * map so a command arriving meanwhile waits for it instead of missing it.
+ *
+ * Eviction only ever runs on the session-evictor thread, so an event loop
+ * calling acquire() never writes to the store; when the bound is exceeded it
+ * just wakes the evictor. Until that catches up the resident count can sit a
+ * little above maxResident.
+ */
+public class SessionManager {
+    private static final int STRIPES = 16;
+
+    private final World world;
+    private final int maxResident;
+    private final long idleTimeoutNanos;
+    private final Path storeFile;
+    private final Stripe[] stripes;
+    private final AtomicInteger residentCount = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+    private final Object storeLock = new Object();
+    private volatile SessionStore store;
+    private Thread evictor;
+    private int nextStripe;
+
+    // Keeps every session on the heap.
+    public SessionManager(World world) {
+        this(world, Integer.MAX_VALUE, 0, null);
+    }
+
+    // idleTimeoutMillis of 0 turns idle eviction off; the store file is only created once something is evicted.
+    public SessionManager(World world, int maxResident, long idleTimeoutMillis, Path storeFile) {
+        if (storeFile == null && (maxResident != Integer.MAX_VALUE || idleTimeoutMillis > 0)) {
+            throw new IllegalArgumentException("Evicting sessions needs a store file");
+        }
+        this.world = world;
+        this.maxResident = maxResident;
+        this.idleTimeoutNanos = idleTimeoutMillis * 1_000_000L;
+        this.storeFile = storeFile;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        if (idleTimeoutMillis > 0 || maxResident != Integer.MAX_VALUE) {
+            long interval = Math.max(idleTimeoutMillis / 4, 10);
+            evictor = new Thread(() -> evictLoop(interval * 1_000_000L), "session-evictor");
+            evictor.setDaemon(true);
+            evictor.start();
+        }
+    }
+
+    // Starts a new game under the id, pinned until release().
+    public GameSession create(String id, OutputSink out) {
+        GameSession session = new GameSession(world, out);
+        Resident entry = new Resident(session);
+        entry.pins = 1;
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            if (stripe.entries.put(id, entry) == null) {
+                residentCount.incrementAndGet();
+            }
+        }
+        SessionStore current = store;
+        if (current != null) {
+            current.remove(id);
+        }
+        requestEviction();
+        return session;
+    }
+
+    // Returns the session pinned until release(), reading it back from the store if it was evicted.
+    public GameSession acquire(String id, OutputSink out) {
+        Stripe stripe = stripe(id);
+        Resident entry;
+        synchronized (stripe) {
+            entry = stripe.entries.get(id);
+            if (entry == null) {
+                if (store == null) {
+                    return null;
+                }
+                entry = new Resident(null);
+                stripe.entries.put(id, entry);
+                residentCount.incrementAndGet();
+            }
+            entry.pins++;
+        }
+
+        GameSession session;
+        synchronized (entry) {
+            if (entry.session == null) {
+                entry.session = store.load(id, out);
+                if (entry.session != null) {
+                    store.remove(id);
+                    rehydrations.incrementAndGet();
+                }
+            }
+            session = entry.session;
+        }
+        if (session == null) {
+            synchronized (stripe) {
+                entry.pins--;
+                if (entry.pins == 0 && stripe.entries.remove(id, entry)) {
+                    residentCount.decrementAndGet();
+                }
+            }
+            return null;
+        }
+        session.setOutput(out);
+        requestEviction();
+        return session;
+    }
+
+    public void release(String id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            Resident entry = stripe.entries.get(id);
+            if (entry != null) {
+                entry.pins--;
+                entry.lastUsed = System.nanoTime();
+            }
+        }
+        // Sessions that were pinned when the evictor last looked may be able to go now.
+        requestEviction();
+    }
+
+    // Forgets a finished session, wherever it is held.
+    public void discard(String id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            if (stripe.entries.remove(id) != null) {
+                residentCount.decrementAndGet();
+            }
+        }
+        SessionStore current = store;
+        if (current != null) {
+            current.remove(id);
+        }
+    }
+
+    public int evictIdle() {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            List<String> ids = new ArrayList<>();
+            List<Resident> victims = new ArrayList<>();
+            long now = System.nanoTime();
+            synchronized (stripe) {
+                for (var next : stripe.entries.entrySet()) {
+                    Resident entry = next.getValue();
+                    if (entry.pins == 0 && !entry.evicting && now - entry.lastUsed > idleTimeoutNanos) {
+                        entry.evicting = true;
+                        ids.add(next.getKey());
+                        victims.add(entry);
+                    }
+                }
+            }
+            evicted += hibernate(stripe, ids, victims);
+        }
+        return evicted;
+    }
+
+    public int getResidentCount() {
+        return residentCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getRehydrationCount() {
+        return rehydrations.get();
+    }
+
+    private Stripe stripe(String id) {
+        int hash = id.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private void requestEviction() {
+        if (residentCount.get() > maxResident) {
+            LockSupport.unpark(evictor);
+        }
+    }
+
+    // Least recently used first, skipping sessions that are running a command. Each pass
+    // starts one stripe further on and moves through the others until under the bound.
+    private void evictOverflow() {
+        int start = nextStripe++ & (STRIPES - 1);
+        for (int i = 0; i < STRIPES && residentCount.get() > maxResident; i++) {
+            Stripe stripe = stripes[(start + i) & (STRIPES - 1)];
+            List<String> ids = new ArrayList<>();
+            List<Resident> victims = new ArrayList<>();
+            synchronized (stripe) {
+                int excess = residentCount.get() - maxResident;
+                for (var next : stripe.entries.entrySet()) {
+                    if (victims.size() == excess) {
+                        break;
+                    }
+                    Resident entry = next.getValue();
+                    if (entry.pins == 0 && !entry.evicting) {
+                        entry.evicting = true;
+                        ids.add(next.getKey());
+                        victims.add(entry);
+                    }
+                }
+            }
+            hibernate(stripe, ids, victims);
+        }
+    }
+
+    // Saves the victims outside the stripe lock and drops the ones nobody picked up meanwhile.
+    // A session too big for a store slot stays on the heap rather than losing part of its state.
+    private int hibernate(Stripe stripe, List<String> ids, List<Resident> victims) {
+        if (victims.isEmpty()) {
+            return 0;
+        }
+        boolean[] saved = new boolean[victims.size()];
+        List<String> discarded = new ArrayList<>();
+        try {
+            SessionStore target = store();
+            for (int i = 0; i < victims.size(); i++) {
+                Resident entry = victims.get(i);
+                synchronized (entry) {
+                    if (entry.session != null && target.save(ids.get(i), entry.session)) {
+                        entry.session = null;
+                        saved[i] = true;
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            synchronized (stripe) {
+                for (int i = 0; i < victims.size(); i++) {
+                    Resident entry = victims.get(i);
+                    entry.evicting = false;
+                    // A command that arrived during the save reads the session back itself, and may
+                    // have released it again already; its release() under this lock makes that visible.
+                    if (saved[i] && entry.pins == 0 && entry.session == null && stripe.entries.remove(ids.get(i), entry)) {
+                        residentCount.decrementAndGet();
+                    } else if (saved[i] && stripe.entries.get(ids.get(i)) != entry) {
+                        discarded.add(ids.get(i));
+                    }
+                }
+            }
+        }
+        // Sessions discarded while they were being saved must not linger in the store.
+        for (String id : discarded) {
+            store.remove(id);
+        }
+        int evicted = 0;
+        for (boolean done : saved) {
+            evicted += done ? 1 : 0;
+        }
+        return evicted;
+    }
+
+    private SessionStore store() throws IOException {
+        SessionStore current = store;
+        if (current == null) {
+            synchronized (storeLock) {
+                current = store;
+                if (current == null) {
+                    current = new SessionStore(storeFile, world);
+                    store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Wakes when a command pushes the count over the bound and, with idle eviction on,
+    // every interval. A failed save leaves the sessions on the heap; the next pass tries again.
+    private void evictLoop(long intervalNanos) {
+        long nextIdlePass = System.nanoTime() + intervalNanos;
+        while (true) {
+            if (idleTimeoutNanos > 0) {
+                LockSupport.parkNanos(this, nextIdlePass - System.nanoTime());
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                if (residentCount.get() > maxResident) {
+                    evictOverflow();
+                }
+                if (idleTimeoutNanos > 0 && System.nanoTime() - nextIdlePass >= 0) {
+                    evictIdle();
+                    nextIdlePass = System.nanoTime() + intervalNanos;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Session eviction failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        if (evictor != null) {
+            evictor.interrupt();
+        }
+        synchronized (storeLock) {
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    private static class Stripe {
+        private final LinkedHashMap<String, Resident> entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // pins, lastUsed and evicting belong to the stripe lock; session to the entry's own lock.
+    private static class Resident {
+        private GameSession session;
+        private long lastUsed;
+        private int pins;
+        private boolean evicting;
+
+        Resident(GameSession session) {
+            this.session = session;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+}
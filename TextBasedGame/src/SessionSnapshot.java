@@ -0,0 +1,191 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Binary layout of one session, written straight into a ByteBuffer:
+ *
+ *   byte     version
+ *   long     packed position (see Coordinates)
+ *   byte     state ordinal, high bit set once the game has ended
+ *   varint   pending puzzle order plus one, or 0
+ *   varint   room count, then solved and visited rooms as bitsets of that many bits,
+ *            or for worlds over DENSE_ROOMS rooms as a run count followed by
+ *            [varint gap since the previous run][varint run length] per run
+ *   varint   rooms visited and puzzles solved score counters
+ *   varint   inventory size, then one varint ItemRegistry id per slot
+ *
+ * A journal checkpoint follows the snapshot with the session's undo history,
+ * so a replayed undo can reach back past it:
+ *
+ *   varint   turn count, then per turn, oldest first and ending with the current one:
+ *            long position, solved and visited rooms as above, the two score
+ *            counters, and the inventory as above
+ *
+ * The mansion comes to about 20 bytes. On large generated worlds the room
+ * sets are sparse, so the encoding grows with the rooms a player has seen.
+ * Neighbouring rooms have neighbouring ids, so a walk through the world
+ * becomes a few long runs. Every room is kept; maxBytes() is then only the
+ * budget a SessionStore slot is sized for, and writeSnapshot throws
+ * BufferOverflowException for a player who has seen more. Item ids are only
+ * stable between processes that intern the same world definition in the same
+ * order.
+ */
+public final class SessionSnapshot {
+    public static final byte VERSION = 4;
+    private static final int ENDED = 0x80;
+    private static final int DENSE_ROOMS = 2048;
+    // Runs of visited rooms a sparse snapshot is budgeted for.
+    private static final int BUDGET_VISITED_RUNS = 1024;
+
+    private SessionSnapshot() {
+    }
+
+    // Upper bound on the encoded size for a world, for sizing buffers and slots; see above for worlds over DENSE_ROOMS rooms.
+    public static int maxBytes(World world) {
+        int roomBytes;
+        if (world.getRoomCount() > DENSE_ROOMS) {
+            roomBytes = 5 + 10 * world.getPuzzleCount() + 5 + 10 * BUDGET_VISITED_RUNS;
+        } else {
+            roomBytes = 2 * ((world.getRoomCount() + 7) >>> 3);
+        }
+        return 1 + 8 + 1 + 5 + 5 + roomBytes + 5 + 5 + 5 + 5 * world.getInventoryCapacity();
+    }
+
+    // The whole snapshot as an array, for callers not bound to a slot; maxBytes() is only a first guess.
+    public static byte[] toBytes(GameSession session, World world) {
+        return toBytes(session::writeSnapshot, maxBytes(world));
+    }
+
+    // A snapshot followed by the undo history, for journal checkpoints.
+    public static byte[] checkpointBytes(GameSession session, World world) {
+        return toBytes(session::writeCheckpoint, maxBytes(world) * 4);
+    }
+
+    private static byte[] toBytes(Consumer<ByteBuffer> writer, int firstGuess) {
+        for (int size = firstGuess; ; size *= 2) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try {
+                writer.accept(buffer);
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            } catch (BufferOverflowException e) {
+                // Try again with room to spare.
+            }
+        }
+    }
+
+    static int stateByte(SessionState state, boolean running) {
+        return state.ordinal() | (running ? 0 : ENDED);
+    }
+
+    static SessionState state(int stateByte) {
+        SessionState[] states = SessionState.values();
+        int ordinal = stateByte & ~ENDED & 0xFF;
+        if (ordinal >= states.length) {
+            throw new IllegalArgumentException("Unknown session state in snapshot: " + ordinal);
+        }
+        return states[ordinal];
+    }
+
+    static boolean running(int stateByte) {
+        return (stateByte & ENDED) == 0;
+    }
+
+    static void checkVersion(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+    }
+
+    static void putBits(ByteBuffer buffer, PersistentBitSet bits, int length) {
+        if (length > DENSE_ROOMS) {
+            putRuns(buffer, bits);
+            return;
+        }
+        for (int i = 0; i < length; i += 8) {
+            buffer.put((byte) (bits.word(i >>> 6) >>> (i & 63)));
+        }
+    }
+
+    // Counts the runs first, since the count goes in front of them.
+    private static void putRuns(ByteBuffer buffer, PersistentBitSet bits) {
+        int[] counted = {0, -2};
+        bits.forEach(bit -> {
+            if (bit != counted[1] + 1) {
+                counted[0]++;
+            }
+            counted[1] = bit;
+        });
+        putVarInt(buffer, counted[0]);
+
+        // start of the current run, last bit seen, end of the previous run
+        int[] run = {-1, -2, 0};
+        bits.forEach(bit -> {
+            if (bit != run[1] + 1) {
+                if (run[0] >= 0) {
+                    putRun(buffer, run);
+                }
+                run[0] = bit;
+            }
+            run[1] = bit;
+        });
+        if (run[0] >= 0) {
+            putRun(buffer, run);
+        }
+    }
+
+    private static void putRun(ByteBuffer buffer, int[] run) {
+        putVarInt(buffer, run[0] - run[2]);
+        putVarInt(buffer, run[1] + 1 - run[0]);
+        run[2] = run[1] + 1;
+    }
+
+    static PersistentBitSet getBits(ByteBuffer buffer, int length) {
+        PersistentBitSet bits = PersistentBitSet.EMPTY;
+        if (length > DENSE_ROOMS) {
+            int runs = getVarInt(buffer);
+            for (int i = 0, end = 0; i < runs; i++) {
+                int start = end + getVarInt(buffer);
+                end = start + getVarInt(buffer);
+                if (start < 0 || end > length || end <= start) {
+                    throw new IllegalArgumentException("Snapshot rooms " + start + ".." + end + " are outside the world");
+                }
+                for (int bit = start; bit < end; bit++) {
+                    bits = bits.with(bit);
+                }
+            }
+            return bits;
+        }
+        for (int i = 0; i < length; i += 8) {
+            int current = buffer.get() & 0xFF;
+            for (int bit = 0; bit < 8 && i + bit < length; bit++) {
+                if ((current & (1 << bit)) != 0) {
+                    bits = bits.with(i + bit);
+                }
+            }
+        }
+        return bits;
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot");
+    }
+}
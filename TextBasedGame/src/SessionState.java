@@ -0,0 +1,5 @@
+public enum SessionState {
+    PLAYING,
+    AWAITING_PUZZLE_ANSWER,
+    CONFIRMING_QUIT
+}
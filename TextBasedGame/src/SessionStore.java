@@ -0,0 +1,241 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Hibernated sessions kept in a memory-mapped file of fixed-size slots. The
+ * file is itself an open-addressing hash table keyed by session id, so the
+ * heap holds nothing per stored session. Each slot is
+ * [short id length][id, padded][short snapshot length][snapshot]; an id length
+ * of 0 marks a free slot and -1 a removed one. The table is rebuilt into a file
+ * twice the size once it is half full.
+ */
+public class SessionStore implements Closeable {
+    public static final int MAX_ID_BYTES = 64;
+    private static final int MAGIC = 0x54505353;
+    private static final int HEADER_BYTES = 16;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final short FREE = 0;
+    private static final short REMOVED = -1;
+
+    private final Path file;
+    private final World world;
+    private final int slotSize;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int capacity;
+    private int used;
+    private int size;
+
+    public SessionStore(Path file, World world) throws IOException {
+        this(file, world, DEFAULT_CAPACITY);
+    }
+
+    public SessionStore(Path file, World world, int initialCapacity) throws IOException {
+        this.file = file;
+        this.world = world;
+        this.slotSize = 2 + MAX_ID_BYTES + 2 + SessionSnapshot.maxBytes(world);
+
+        if (Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+            open(file);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != slotSize) {
+                throw new IOException("Session store " + file + " was written for a different world");
+            }
+            capacity = map.getInt(8);
+            countSlots();
+        } else {
+            capacity = Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1;
+            create(file, capacity);
+            open(file);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(String id) {
+        return find(encodeId(id)) >= 0;
+    }
+
+    // Returns false, with nothing left stored under the id, when the snapshot is bigger than a slot.
+    public synchronized boolean save(String id, GameSession session) throws IOException {
+        byte[] key = encodeId(id);
+        int slot = find(key);
+        if (slot < 0) {
+            if ((used + 1) * 2 > capacity) {
+                grow();
+            }
+            slot = insertionSlot(key);
+        }
+
+        int offset = offset(slot);
+        ByteBuffer snapshot = map.slice(offset + 2 + MAX_ID_BYTES + 2, slotSize - 2 - MAX_ID_BYTES - 2);
+        try {
+            session.writeSnapshot(snapshot);
+        } catch (BufferOverflowException e) {
+            if (map.getShort(offset) > 0) {
+                map.putShort(offset, REMOVED);
+                size--;
+            }
+            return false;
+        }
+        short previous = map.getShort(offset);
+        if (previous <= 0) {
+            if (previous == FREE) {
+                used++;
+            }
+            size++;
+        }
+        map.putShort(offset, (short) key.length);
+        map.put(offset + 2, key);
+        map.putShort(offset + 2 + MAX_ID_BYTES, (short) snapshot.position());
+        return true;
+    }
+
+    // Returns null when nothing is stored under the id.
+    public synchronized GameSession load(String id, OutputSink out) {
+        int slot = find(encodeId(id));
+        if (slot < 0) {
+            return null;
+        }
+        int offset = offset(slot);
+        int length = map.getShort(offset + 2 + MAX_ID_BYTES);
+        return GameSession.readSnapshot(world, map.slice(offset + 2 + MAX_ID_BYTES + 2, length), out);
+    }
+
+    public synchronized boolean remove(String id) {
+        int slot = find(encodeId(id));
+        if (slot < 0) {
+            return false;
+        }
+        map.putShort(offset(slot), REMOVED);
+        size--;
+        return true;
+    }
+
+    private int find(byte[] key) {
+        int mask = capacity - 1;
+        for (int slot = hash(key) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int offset = offset(slot);
+            short length = map.getShort(offset);
+            if (length == FREE) {
+                return -1;
+            }
+            if (length == key.length && matches(offset + 2, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int insertionSlot(byte[] key) {
+        int mask = capacity - 1;
+        int slot = hash(key) & mask;
+        while (map.getShort(offset(slot)) > 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(int offset, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (map.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Copies every live slot into a table twice the size and swaps the files.
+    private void grow() throws IOException {
+        int oldCapacity = capacity;
+        if (HEADER_BYTES + (long) oldCapacity * 2 * slotSize > Integer.MAX_VALUE) {
+            throw new IOException("Session store " + file + " is full");
+        }
+        Path next = file.resolveSibling(file.getFileName() + ".grow");
+        MappedByteBuffer old = map;
+        FileChannel oldChannel = channel;
+
+        create(next, oldCapacity * 2);
+        open(next);
+        capacity = oldCapacity * 2;
+        used = 0;
+        byte[] slotBytes = new byte[slotSize];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int offset = HEADER_BYTES + slot * slotSize;
+            short length = old.getShort(offset);
+            if (length > 0) {
+                old.get(offset, slotBytes);
+                byte[] key = Arrays.copyOfRange(slotBytes, 2, 2 + length);
+                map.put(offset(insertionSlot(key)), slotBytes);
+                used++;
+            }
+        }
+        map.force();
+        oldChannel.close();
+
+        channel.close();
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(file);
+    }
+
+    private void create(Path target, int slots) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(slotSize).putInt(slots).putInt(0).flip();
+        try (FileChannel created = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            created.write(header, 0);
+            created.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) slots * slotSize - 1);
+        }
+    }
+
+    private void open(Path source) throws IOException {
+        channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+
+    private void countSlots() {
+        for (int slot = 0; slot < capacity; slot++) {
+            short length = map.getShort(offset(slot));
+            if (length != FREE) {
+                used++;
+            }
+            if (length > 0) {
+                size++;
+            }
+        }
+    }
+
+    private int offset(int slot) {
+        return HEADER_BYTES + slot * slotSize;
+    }
+
+    private static byte[] encodeId(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Session ids must be 1 to " + MAX_ID_BYTES + " bytes: " + id);
+        }
+        return key;
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.Arrays;
+
+public class SimulationResult {
+    private final int connections;
+    private final int commands;
+    private final long elapsedNanos;
+    private final long[] latencies;
+
+    public SimulationResult(int connections, int commands, long elapsedNanos, long[] latencies) {
+        this.connections = connections;
+        this.commands = commands;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        Arrays.sort(this.latencies);
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getCommands() {
+        return commands;
+    }
+
+    public double getPercentileMillis(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+        return latencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        return String.format("connections=%d commands=%d elapsed=%.2fs throughput=%.0f cmd/s p50=%.3fms p99=%.3fms max=%.3fms",
+                connections, commands, seconds, commands / seconds,
+                getPercentileMillis(50), getPercentileMillis(99), getPercentileMillis(100));
+    }
+}
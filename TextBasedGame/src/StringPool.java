@@ -0,0 +1,54 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only strings stored as UTF-8 in a direct buffer and looked up by id,
+ * laid out as [int offsets, count + 1] followed by the bytes of every string,
+ * offsets counted from the first byte. get() hands out slices of the buffer,
+ * so nothing is decoded or copied onto the heap until a sink needs characters
+ * instead of bytes.
+ */
+public final class StringPool {
+    private final ByteBuffer pool;
+    private final int count;
+    private final int dataStart;
+
+    private StringPool(ByteBuffer pool, int count) {
+        this.pool = pool;
+        this.count = count;
+        this.dataStart = (count + 1) * 4;
+    }
+
+    public static StringPool of(String[] texts) {
+        byte[][] encoded = new byte[texts.length][];
+        int total = 0;
+        for (int i = 0; i < texts.length; i++) {
+            encoded[i] = texts[i].getBytes(StandardCharsets.UTF_8);
+            total += encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((texts.length + 1) * 4 + total);
+        int offset = 0;
+        for (byte[] text : encoded) {
+            buffer.putInt(offset);
+            offset += text.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] text : encoded) {
+            buffer.put(text);
+        }
+        return new StringPool(buffer.flip(), texts.length);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public EncodedText get(int id) {
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("No string " + id + " in a pool of " + count);
+        }
+        int start = pool.getInt(id * 4);
+        int end = pool.getInt(4 + id * 4);
+        return new EncodedText(pool.slice(dataStart + start, end - start));
+    }
+}
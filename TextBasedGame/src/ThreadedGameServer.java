@@ -0,0 +1,147 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one blocking command loop per connection, either on a virtual thread
+ * or on a platform thread. Virtual threads need Java 21; on older runtimes
+ * the virtual mode falls back to platform threads.
+ *
+ * The virtual thread scheduler is shared by the whole JVM and sized once, when
+ * the first virtual thread starts, so its carrier count is bounded on the
+ * command line rather than here:
+ * -Djdk.virtualThreadScheduler.parallelism=N -Djdk.virtualThreadScheduler.maxPoolSize=N
+ */
+public class ThreadedGameServer implements GameServer {
+    public static final String VIRTUAL = "virtual";
+    public static final String PLATFORM = "platform";
+    private static final int DEFAULT_PORT = 4000;
+    private static final int BACKLOG = 1024;
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    private static final int READ_BUFFER_CHARS = 512;
+    private static final int WRITE_BUFFER_CHARS = 2048;
+
+    private final int port;
+    private final String mode;
+    private final ExecutorService executor;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public ThreadedGameServer(int port, String mode) {
+        this.port = port;
+        if (mode.equals(VIRTUAL)) {
+            ExecutorService virtual = newVirtualExecutor();
+            this.mode = virtual != null ? VIRTUAL : PLATFORM;
+            this.executor = virtual != null ? virtual : newPlatformExecutor();
+        } else if (mode.equals(PLATFORM)) {
+            this.mode = PLATFORM;
+            this.executor = newPlatformExecutor();
+        } else {
+            throw new IllegalArgumentException("Unknown thread mode: " + mode);
+        }
+    }
+
+    // Looked up reflectively so the server still compiles and runs on Java 17.
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(null, task, "game-session-" + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    @Override
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        running = true;
+
+        acceptor = new Thread(this::acceptLoop, "game-acceptor");
+        acceptor.start();
+    }
+
+    @Override
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // The same loop as Game.gameLoop(), only reading from and writing to the socket.
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+             PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), WRITE_BUFFER_CHARS))) {
+            GameSession session = new GameSession(writer::print);
+            session.start();
+
+            while (session.isRunning()) {
+                if (!session.isAwaitingAnswer()) {
+                    writer.print(NioConnection.PROMPT);
+                }
+                writer.flush();
+                String line = reader.readLine();
+                if (line == null) {
+                    return;
+                }
+                session.processLine(line);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // The client went away; nothing else to clean up.
+        }
+    }
+
+    @Override
+    public void stop() throws IOException {
+        running = false;
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        String mode = args.length > 1 ? args[1] : VIRTUAL;
+
+        ThreadedGameServer server = new ThreadedGameServer(port, mode);
+        server.start();
+        System.out.println("Temporal Paradox server listening on port " + server.getPort()
+                + " with " + server.getMode() + " threads");
+    }
+}
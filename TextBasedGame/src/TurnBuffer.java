@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Everything one session prints during a turn, already encoded as UTF-8 and
+ * written out in one go when the turn is over. Text is encoded into a direct
+ * scratch buffer that is kept and reused from turn to turn. Large pre-encoded
+ * blocks (EncodedText, such as the help or a description mapped from a world
+ * image) are not copied at all: the pending output is a list of segments, and
+ * writeTo() hands all of them to a single gathering write.
+ */
+public final class TurnBuffer implements OutputSink {
+    private static final int INITIAL_CAPACITY = 4096;
+    // Pre-encoded text shorter than this is cheaper to copy than to give its own segment.
+    private static final int INLINE_LIMIT = 256;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer scratch;
+    private int segmentStart;
+    private ByteBuffer[] segments = new ByteBuffer[8];
+    private int first;
+    private int count;
+
+    @Override
+    public void print(CharSequence text) {
+        if (scratch == null) {
+            scratch = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        }
+        if (text instanceof EncodedText) {
+            EncodedText encoded = (EncodedText) text;
+            if (encoded.byteLength() >= INLINE_LIMIT) {
+                endSegment();
+                addSegment(encoded.bytes());
+                return;
+            }
+            if (scratch.remaining() < encoded.byteLength()) {
+                grow(encoded.byteLength());
+            }
+            scratch.put(encoded.bytes());
+            return;
+        }
+        if (!putAscii(text)) {
+            encode(text);
+        }
+    }
+
+    // The common case needs no encoder and no CharBuffer: every char is one byte.
+    private boolean putAscii(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        if (scratch.remaining() < length) {
+            grow(length);
+        }
+        for (int i = 0; i < length; i++) {
+            scratch.put((byte) text.charAt(i));
+        }
+        return true;
+    }
+
+    private void encode(CharSequence text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (encoder.encode(chars, scratch, true) == CoderResult.OVERFLOW) {
+            grow(chars.remaining() * 3);
+        }
+        encoder.reset();
+    }
+
+    // Starts a bigger scratch buffer instead of copying: what is already written stays where it is as a segment.
+    private void grow(int needed) {
+        endSegment();
+        int capacity = scratch.capacity() * 2;
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        scratch = ByteBuffer.allocateDirect(capacity);
+        segmentStart = 0;
+    }
+
+    private void endSegment() {
+        if (scratch.position() > segmentStart) {
+            addSegment(scratch.slice(segmentStart, scratch.position() - segmentStart));
+            segmentStart = scratch.position();
+        }
+    }
+
+    private void addSegment(ByteBuffer segment) {
+        if (count == segments.length) {
+            ByteBuffer[] grown = new ByteBuffer[segments.length * 2];
+            System.arraycopy(segments, 0, grown, 0, count);
+            segments = grown;
+        }
+        segments[count++] = segment;
+    }
+
+    public boolean isEmpty() {
+        return first == count && (scratch == null || scratch.position() == segmentStart);
+    }
+
+    /**
+     * Writes as much pending output as the channel takes, with one gathering
+     * write when the channel supports it. Returns true once everything is out,
+     * at which point the buffer is ready for the next turn; otherwise call
+     * again when the channel can take more.
+     */
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        if (scratch != null) {
+            endSegment();
+        }
+        if (channel instanceof GatheringByteChannel) {
+            ((GatheringByteChannel) channel).write(segments, first, count - first);
+        } else {
+            for (int i = first; i < count; i++) {
+                channel.write(segments[i]);
+                if (segments[i].hasRemaining()) {
+                    break;
+                }
+            }
+        }
+        while (first < count && !segments[first].hasRemaining()) {
+            segments[first++] = null;
+        }
+        if (first < count) {
+            return false;
+        }
+        first = 0;
+        count = 0;
+        if (scratch != null) {
+            scratch.clear();
+            segmentStart = 0;
+        }
+        return true;
+    }
+}
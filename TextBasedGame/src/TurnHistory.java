@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * The last few turns of one session, newest last, in a ring that grows on
+ * demand up to its depth and then overwrites the oldest turn. A Turn only
+ * holds references to persistent structures, so consecutive turns share
+ * nearly all of their state and going back n turns is an index lookup.
+ */
+public class TurnHistory {
+    public static final int DEFAULT_DEPTH = 256;
+
+    private final int depth;
+    private Turn[] ring;
+    private int newest = -1;
+    private int size;
+
+    public TurnHistory() {
+        this(DEFAULT_DEPTH);
+    }
+
+    public TurnHistory(int depth) {
+        this.depth = depth;
+        this.ring = new Turn[Math.min(depth, 4)];
+    }
+
+    // Turns that can be gone back to; the current one does not count.
+    public int available() {
+        return Math.max(size - 1, 0);
+    }
+
+    // Turns held, the current one included.
+    public int size() {
+        return size;
+    }
+
+    // The turn `age` turns before the current one, which is age 0.
+    public Turn get(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("No turn " + age + " back of " + size);
+        }
+        return ring[(newest - age + ring.length) % ring.length];
+    }
+
+    // Records the state after a turn, unless nothing changed since the last one.
+    public void record(Turn turn) {
+        if (size > 0 && ring[newest].sameAs(turn)) {
+            return;
+        }
+        push(turn);
+    }
+
+    // Replaces the history with these turns, oldest first, exactly as given.
+    public void restore(Turn[] turns) {
+        if (turns.length > depth) {
+            throw new IllegalArgumentException(turns.length + " turns do not fit a history of " + depth);
+        }
+        Arrays.fill(ring, null);
+        newest = -1;
+        size = 0;
+        for (Turn turn : turns) {
+            push(turn);
+        }
+    }
+
+    private void push(Turn turn) {
+        if (size == ring.length && ring.length < depth) {
+            Turn[] grown = new Turn[Math.min(ring.length * 2, depth)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = ring[(newest + 1 + i) % size];
+            }
+            ring = grown;
+            newest = size - 1;
+        }
+        newest = (newest + 1) % ring.length;
+        ring[newest] = turn;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    // Drops the newest n turns and returns the one that is current again.
+    public Turn rewind(int n) {
+        if (n < 1 || n > available()) {
+            throw new IllegalArgumentException("Cannot rewind " + n + " of " + available() + " turns");
+        }
+        for (int i = 0; i < n; i++) {
+            ring[newest] = null;
+            newest = (newest - 1 + ring.length) % ring.length;
+        }
+        size -= n;
+        return ring[newest];
+    }
+
+    public static final class Turn {
+        public final long position;
+        public final PersistentBitSet solvedPuzzles;
+        public final PersistentBitSet roomsVisited;
+        public final Inventory.Contents inventory;
+        public final int visitCount;
+        public final int solveCount;
+
+        public Turn(long position, PersistentBitSet solvedPuzzles, PersistentBitSet roomsVisited,
+                    Inventory.Contents inventory, int visitCount, int solveCount) {
+            this.position = position;
+            this.solvedPuzzles = solvedPuzzles;
+            this.roomsVisited = roomsVisited;
+            this.inventory = inventory;
+            this.visitCount = visitCount;
+            this.solveCount = solveCount;
+        }
+
+        boolean sameAs(Turn other) {
+            return position == other.position && solvedPuzzles == other.solvedPuzzles
+                    && roomsVisited == other.roomsVisited && inventory == other.inventory
+                    && visitCount == other.visitCount && solveCount == other.solveCount;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Everything about a game world that is the same for every player: rooms,
+ * their features, the puzzle chain and the map. A world is shared by all
+ * sessions on it, so implementations must be safe to read from many threads.
+ * Per-player state lives in GameSession.
+ */
+public interface World {
+    World MANSION = new Mansion();
+
+    String getFirstObjective();
+
+    long getStartingPosition();
+
+    int getInventoryCapacity();
+
+    Map getMap();
+
+    // Room ids run from 0 to getRoomCount() - 1, though not every id has to be in use.
+    int getRoomCount();
+
+    Room getRoom(int roomIndex);
+
+    Room getRoomAtPosition(long pos);
+
+    default int getRoomIndex(Room room) {
+        return room == null ? RoomIndex.NO_ROOM : room.getId();
+    }
+
+    boolean isValidPosition(long pos);
+
+    RouteTable getRoutes();
+
+    // The room with this lower-case name or a unique prefix of it, or null.
+    Room findRoom(String name);
+
+    Features getFeatures();
+
+    // Rooms the item can be collected from.
+    int[] getRoomsWithItem(int itemId);
+
+    int getPuzzleCount();
+
+    // Puzzles in the order they have to be solved.
+    Puzzle getPuzzle(int order);
+
+    int getPuzzleOrder(Puzzle puzzle);
+
+    Puzzle getPuzzleForRoom(int roomIndex);
+
+    // The puzzle that has to be solved before this one can be attempted, or null for the first.
+    Puzzle getPreviousPuzzle(Puzzle puzzle);
+
+    // Every puzzle reward; holding all of them with every puzzle solved wins the game.
+    long[] getWinItems();
+}
@@ -0,0 +1,424 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Compiles a text world definition into the binary image WorldImage maps.
+ * The definition is line based; each line is a keyword and a value that runs
+ * to the end of the line, where \n stands for a line break and \\ for a
+ * backslash. Blank lines and lines starting with # are skipped.
+ *
+ *   size <width> <height>, start <x> <y>, inventory <capacity>, objective <text>
+ *   room <name>          followed by symbol, at <x> <y>, description and features <item...>
+ *   feature <item>       followed by description
+ *   collectible <item...>
+ *   puzzle <room name>   followed by trigger, key, part, reward and answer, and the
+ *                        PuzzleText messages arrival, locked, missing_key, begin, intro,
+ *                        prompt, success, failure, collect_objective and solve_objective
+ *
+ * Puzzles are solved in the order they are declared. Features without a
+ * description get the same stock one FeatureTable gives them.
+ */
+public final class WorldCompiler {
+    private static final String[] TEXT_KEYS = {"arrival", "locked", "missing_key", "begin", "intro", "prompt",
+        "success", "failure", "collect_objective", "solve_objective"};
+    private static final int FAILURE = 7;
+
+    private final Path source;
+    private int width = -1;
+    private int height = -1;
+    private int startX = -1;
+    private int startY;
+    private int inventory = Inventory.DEFAULT_CAPACITY;
+    private String objective;
+    private final List<RoomDefinition> rooms = new ArrayList<>();
+    private final LinkedHashMap<String, ItemDefinition> items = new LinkedHashMap<>();
+    private final List<PuzzleDefinition> puzzles = new ArrayList<>();
+
+    private WorldCompiler(Path source) {
+        this.source = source;
+    }
+
+    public static void compile(Path source, Path target) throws IOException {
+        WorldCompiler compiler = new WorldCompiler(source);
+        compiler.parse(Files.readAllLines(source, StandardCharsets.UTF_8));
+        compiler.write(target);
+    }
+
+    private void parse(List<String> lines) {
+        RoomDefinition room = null;
+        ItemDefinition feature = null;
+        PuzzleDefinition puzzle = null;
+
+        for (int number = 1; number <= lines.size(); number++) {
+            String line = lines.get(number - 1).stripLeading();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            String keyword = space < 0 ? line : line.substring(0, space);
+            String value = space < 0 ? "" : unescape(line.substring(space + 1));
+            try {
+                switch (keyword) {
+                    case "size" -> {
+                        int[] size = ints(value, 2);
+                        width = size[0];
+                        height = size[1];
+                    }
+                    case "start" -> {
+                        int[] start = ints(value, 2);
+                        startX = start[0];
+                        startY = start[1];
+                    }
+                    case "inventory" -> inventory = ints(value, 1)[0];
+                    case "objective" -> objective = value;
+                    case "room" -> {
+                        room = new RoomDefinition(value);
+                        rooms.add(room);
+                        feature = null;
+                        puzzle = null;
+                    }
+                    case "feature" -> {
+                        feature = item(value);
+                        room = null;
+                        puzzle = null;
+                    }
+                    case "puzzle" -> {
+                        puzzle = new PuzzleDefinition(value);
+                        puzzles.add(puzzle);
+                        room = null;
+                        feature = null;
+                    }
+                    case "collectible" -> {
+                        for (String name : value.split(" +")) {
+                            item(name).collectible = true;
+                        }
+                    }
+                    case "symbol" -> current(room, keyword).symbol = value.charAt(0);
+                    case "at" -> {
+                        int[] at = ints(value, 2);
+                        current(room, keyword).x = at[0];
+                        current(room, keyword).y = at[1];
+                    }
+                    case "features" -> {
+                        for (String name : value.split(" +")) {
+                            current(room, keyword).features.add(name);
+                            item(name);
+                        }
+                    }
+                    case "description" -> {
+                        if (room != null) {
+                            room.description = value;
+                        } else {
+                            current(feature, keyword).description = value;
+                        }
+                    }
+                    case "trigger" -> current(puzzle, keyword).trigger = item(value).name;
+                    case "key" -> current(puzzle, keyword).key = item(value).name;
+                    case "part" -> current(puzzle, keyword).part = item(value).name;
+                    case "reward" -> current(puzzle, keyword).reward = item(value).name;
+                    case "answer" -> current(puzzle, keyword).answer = value;
+                    default -> {
+                        int text = Arrays.asList(TEXT_KEYS).indexOf(keyword);
+                        if (text < 0) {
+                            throw new IllegalArgumentException("unknown keyword '" + keyword + "'");
+                        }
+                        current(puzzle, keyword).text[text] = value;
+                    }
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException(source + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        validate();
+    }
+
+    private void validate() {
+        if (width < 1 || height < 1 || startX < 0) {
+            throw new IllegalArgumentException(source + ": size and start are required");
+        }
+        if (objective == null || puzzles.isEmpty()) {
+            throw new IllegalArgumentException(source + ": an objective and at least one puzzle are required");
+        }
+        HashMap<String, Integer> names = new HashMap<>();
+        HashMap<Long, String> positions = new HashMap<>();
+        for (int id = 0; id < rooms.size(); id++) {
+            RoomDefinition room = rooms.get(id);
+            if (room.x < 0 || room.y < 0 || room.x >= width || room.y >= height || room.symbol == 0 || room.description == null) {
+                throw new IllegalArgumentException(source + ": room " + room.name + " needs a symbol, a description and a position on the map");
+            }
+            if (names.put(room.name.toLowerCase(), id) != null) {
+                throw new IllegalArgumentException(source + ": two rooms are called " + room.name);
+            }
+            String other = positions.put(Coordinates.pack(room.x, room.y), room.name);
+            if (other != null) {
+                throw new IllegalArgumentException(source + ": " + other + " and " + room.name + " are in the same place");
+            }
+        }
+        for (PuzzleDefinition puzzle : puzzles) {
+            Integer room = names.get(puzzle.roomName.toLowerCase());
+            if (room == null) {
+                throw new IllegalArgumentException(source + ": puzzle room " + puzzle.roomName + " does not exist");
+            }
+            puzzle.room = room;
+            if (puzzle.trigger == null || puzzle.key == null || puzzle.part == null || puzzle.reward == null || puzzle.answer == null) {
+                throw new IllegalArgumentException(source + ": the puzzle in " + puzzle.roomName + " needs a trigger, key, part, reward and answer");
+            }
+            if (!rooms.get(room).features.contains(puzzle.trigger)) {
+                throw new IllegalArgumentException(source + ": " + puzzle.trigger + " is not a feature of " + puzzle.roomName);
+            }
+            for (int i = 0; i < TEXT_KEYS.length; i++) {
+                if (puzzle.text[i] == null && i != FAILURE) {
+                    throw new IllegalArgumentException(source + ": the puzzle in " + puzzle.roomName + " has no " + TEXT_KEYS[i]);
+                }
+            }
+        }
+    }
+
+    private void write(Path target) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(4, rooms.size() * 2) - 1) << 1;
+        int roomsOffset = WorldImage.HEADER_BYTES;
+        int itemsOffset = roomsOffset + rooms.size() * WorldImage.ROOM_BYTES;
+        int puzzlesOffset = itemsOffset + items.size() * WorldImage.ITEM_BYTES;
+        int namesOffset = puzzlesOffset + puzzles.size() * WorldImage.PUZZLE_BYTES;
+        int positionsOffset = namesOffset + rooms.size() * WorldImage.NAME_BYTES;
+        int fixedBytes = positionsOffset + capacity * WorldImage.POSITION_BYTES;
+        ByteBuffer fixed = ByteBuffer.allocate(fixedBytes);
+        Tail tail = new Tail(fixedBytes);
+
+        fixed.putInt(WorldImage.MAGIC).putInt(WorldImage.VERSION).putInt(width).putInt(height).putInt(startX).putInt(startY)
+                .putInt(inventory).putInt(tail.string(objective)).putInt(rooms.size()).putInt(roomsOffset)
+                .putInt(items.size()).putInt(itemsOffset).putInt(puzzles.size()).putInt(puzzlesOffset)
+                .putInt(namesOffset).putInt(capacity).putInt(positionsOffset);
+
+        // Item indexes and the rooms holding each item, found in one pass over the rooms.
+        HashMap<String, Integer> itemIndex = new HashMap<>();
+        for (String name : items.keySet()) {
+            itemIndex.put(name, itemIndex.size());
+        }
+        int[][] holders = new int[items.size()][];
+        int[] holderCounts = new int[items.size()];
+        for (int room = 0; room < rooms.size(); room++) {
+            for (String feature : rooms.get(room).features) {
+                int item = itemIndex.get(feature);
+                int count = holderCounts[item];
+                if (count > 0 && holders[item][count - 1] == room) {
+                    continue;
+                }
+                if (holders[item] == null) {
+                    holders[item] = new int[4];
+                } else if (count == holders[item].length) {
+                    holders[item] = Arrays.copyOf(holders[item], count * 2);
+                }
+                holders[item][count] = room;
+                holderCounts[item] = count + 1;
+            }
+        }
+
+        for (RoomDefinition room : rooms) {
+            int[] features = new int[room.features.size()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = itemIndex.get(room.features.get(i));
+            }
+            String listing = features.length == 0 ? null : "\nYou can see:\n- " + String.join("\n- ", room.features);
+            fixed.putInt(tail.string(room.name)).putInt(tail.string(room.description)).putInt(tail.string(listing))
+                    .putInt(tail.list(features)).putInt(room.x).putInt(room.y).putInt(room.symbol);
+        }
+
+        int index = 0;
+        for (ItemDefinition item : items.values()) {
+            int[] held = item.collectible && holders[index] != null ? Arrays.copyOf(holders[index], holderCounts[index]) : new int[0];
+            index++;
+            String description = item.description != null ? item.description : "A rather ordinary " + item.name + ".";
+            fixed.putInt(tail.string(item.name)).putInt(tail.string(description)).putInt(item.collectible ? 1 : 0)
+                    .putInt(tail.list(held));
+        }
+
+        for (PuzzleDefinition puzzle : puzzles) {
+            fixed.putInt(puzzle.room).putInt(itemIndex.get(puzzle.trigger)).putInt(itemIndex.get(puzzle.key))
+                    .putInt(itemIndex.get(puzzle.part)).putInt(itemIndex.get(puzzle.reward)).putInt(tail.string(puzzle.answer));
+            for (String text : puzzle.text) {
+                fixed.putInt(tail.string(text));
+            }
+        }
+
+        String[] lowerNames = new String[rooms.size()];
+        Integer[] byName = new Integer[rooms.size()];
+        for (int i = 0; i < byName.length; i++) {
+            lowerNames[i] = rooms.get(i).name.toLowerCase();
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (a, b) -> lowerNames[a].compareTo(lowerNames[b]));
+        for (int room : byName) {
+            fixed.putInt(tail.string(lowerNames[room])).putInt(room);
+        }
+
+        for (int slot = 0; slot < capacity; slot++) {
+            fixed.putLong(positionsOffset + slot * WorldImage.POSITION_BYTES, 0);
+            fixed.putInt(positionsOffset + slot * WorldImage.POSITION_BYTES + 8, RoomIndex.NO_ROOM);
+        }
+        for (int room = 0; room < rooms.size(); room++) {
+            long position = Coordinates.pack(rooms.get(room).x, rooms.get(room).y);
+            int slot = RoomIndex.hash(position) & (capacity - 1);
+            while (fixed.getInt(positionsOffset + slot * WorldImage.POSITION_BYTES + 8) != RoomIndex.NO_ROOM) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            fixed.putLong(positionsOffset + slot * WorldImage.POSITION_BYTES, position);
+            fixed.putInt(positionsOffset + slot * WorldImage.POSITION_BYTES + 8, room);
+        }
+
+        // Written beside the target and moved over it, so a running server never maps a half-written image.
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            fixed.clear();
+            ByteBuffer[] parts = {fixed, ByteBuffer.wrap(tail.bytes.toByteArray())};
+            while (parts[0].hasRemaining() || parts[1].hasRemaining()) {
+                channel.write(parts);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ItemDefinition item(String name) {
+        if (name.isEmpty() || name.contains(" ")) {
+            throw new IllegalArgumentException("bad item name '" + name + "'");
+        }
+        return items.computeIfAbsent(name, ItemDefinition::new);
+    }
+
+    private static <T> T current(T block, String keyword) {
+        if (block == null) {
+            throw new IllegalArgumentException("'" + keyword + "' is not allowed here");
+        }
+        return block;
+    }
+
+    private static int[] ints(String value, int count) {
+        String[] parts = value.trim().split(" +");
+        if (parts.length != count) {
+            throw new IllegalArgumentException("expected " + count + " numbers but got '" + value + "'");
+        }
+        int[] numbers = new int[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = Integer.parseInt(parts[i]);
+        }
+        return numbers;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                text.append(next == 'n' ? '\n' : next);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    // Everything after the fixed-size records: strings, each stored once, and id lists.
+    private static final class Tail {
+        private final int base;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final HashMap<String, Integer> strings = new HashMap<>();
+
+        Tail(int base) {
+            this.base = base;
+        }
+
+        int string(String value) throws IOException {
+            if (value == null) {
+                return WorldImage.NO_STRING;
+            }
+            Integer known = strings.get(value);
+            if (known != null) {
+                return known;
+            }
+            int offset = base + data.size();
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(encoded.length);
+            data.write(encoded);
+            strings.put(value, offset);
+            return offset;
+        }
+
+        int list(int[] values) throws IOException {
+            int offset = base + data.size();
+            data.writeInt(values.length);
+            for (int value : values) {
+                data.writeInt(value);
+            }
+            return offset;
+        }
+    }
+
+    private static final class RoomDefinition {
+        private final String name;
+        private final List<String> features = new ArrayList<>();
+        private String description;
+        private char symbol;
+        private int x = -1;
+        private int y = -1;
+
+        RoomDefinition(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class ItemDefinition {
+        private final String name;
+        private String description;
+        private boolean collectible;
+
+        ItemDefinition(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class PuzzleDefinition {
+        private final String roomName;
+        private final String[] text = new String[TEXT_KEYS.length];
+        private int room;
+        private String trigger;
+        private String key;
+        private String part;
+        private String reward;
+        private String answer;
+
+        PuzzleDefinition(String roomName) {
+            this.roomName = roomName;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java WorldCompiler <definition.world> <image.wimg>");
+            System.exit(2);
+        }
+        compile(Path.of(args[0]), Path.of(args[1]));
+        WorldImage world = new WorldImage(Path.of(args[1]));
+        System.out.println("Compiled " + world.getRoomCount() + " rooms and " + world.getPuzzleCount() + " puzzles into "
+                + args[1] + " (" + Files.size(Path.of(args[1])) + " bytes)");
+    }
+}
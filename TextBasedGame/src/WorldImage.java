@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A world loaded from a binary image written by WorldCompiler. The file is
+ * mapped read-only and read in place: rooms are decoded the first time they
+ * are asked for, and only item names, the puzzle chain and the map grid are
+ * built at load. Room and feature descriptions stay in the mapping as
+ * EncodedText and are copied to the player without being decoded. Every
+ * process that opens the same image shares its pages through the page cache.
+ *
+ * All numbers are big-endian ints. A string reference is the offset of an
+ * [int length][UTF-8 bytes] record, or -1 for none; every other offset is from
+ * the start of the file. The header is
+ *
+ *   MAGIC, VERSION, width, height, start x, start y, inventory capacity,
+ *   first objective, room count, rooms, item count, items, puzzle count,
+ *   puzzles, room names, position table capacity, position table
+ *
+ * followed by fixed-size records:
+ *
+ *   room      name, description, feature listing, features, x, y, symbol
+ *   item      name, description, collectible (0 or 1), rooms holding it
+ *   puzzle    room, trigger, key, part and reward items, answer, then the ten
+ *             PuzzleText messages in declaration order
+ *   name      lower-case room name, room id; sorted by name
+ *   position  [long packed position][int room id], open addressing with
+ *             RoomIndex.hash; id -1 marks an empty slot
+ *
+ * Features and rooms holding an item are [int count][int id...] lists, items
+ * by their index in the image. ItemRegistry ids are assigned at load.
+ */
+public final class WorldImage implements World {
+    static final int MAGIC = 0x54544E57;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 68;
+    static final int ROOM_BYTES = 28;
+    static final int ITEM_BYTES = 16;
+    static final int PUZZLE_BYTES = 64;
+    static final int NAME_BYTES = 8;
+    static final int POSITION_BYTES = 12;
+    static final int NO_STRING = -1;
+
+    private final MappedByteBuffer image;
+    private final int width;
+    private final int height;
+    private final long startingPosition;
+    private final int inventoryCapacity;
+    private final String firstObjective;
+    private final int roomCount;
+    private final int roomsOffset;
+    private final int itemsOffset;
+    private final int namesOffset;
+    private final int positionMask;
+    private final int positionsOffset;
+    private final AtomicReferenceArray<Room> rooms;
+    private final int[] itemIds;
+    private final int[] localItems;
+    private final Puzzle[] puzzles;
+    private final HashMap<Integer, Integer> puzzleOrderByRoom;
+    private final long[] winItems;
+    private final Map map;
+    private final Features features;
+    private final RouteTable routes;
+
+    public WorldImage(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (image.capacity() < HEADER_BYTES || image.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a world image");
+        }
+        if (image.getInt(4) != VERSION) {
+            throw new IOException(file + " is world image version " + image.getInt(4) + ", expected " + VERSION);
+        }
+        width = image.getInt(8);
+        height = image.getInt(12);
+        startingPosition = Coordinates.pack(image.getInt(16), image.getInt(20));
+        inventoryCapacity = image.getInt(24);
+        firstObjective = string(image.getInt(28));
+        roomCount = image.getInt(32);
+        roomsOffset = image.getInt(36);
+        int itemCount = image.getInt(40);
+        itemsOffset = image.getInt(44);
+        int puzzleCount = image.getInt(48);
+        int puzzlesOffset = image.getInt(52);
+        namesOffset = image.getInt(56);
+        positionMask = image.getInt(60) - 1;
+        positionsOffset = image.getInt(64);
+        rooms = new AtomicReferenceArray<>(roomCount);
+
+        itemIds = new int[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            itemIds[item] = ItemRegistry.intern(string(image.getInt(itemsOffset + item * ITEM_BYTES)));
+        }
+        localItems = new int[ItemRegistry.size()];
+        Arrays.fill(localItems, -1);
+        for (int item = 0; item < itemCount; item++) {
+            localItems[itemIds[item]] = item;
+        }
+
+        puzzles = new Puzzle[puzzleCount];
+        puzzleOrderByRoom = new HashMap<>();
+        int[] rewards = new int[puzzleCount];
+        for (int order = 0; order < puzzleCount; order++) {
+            int at = puzzlesOffset + order * PUZZLE_BYTES;
+            String[] text = new String[10];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = string(image.getInt(at + 24 + i * 4));
+            }
+            puzzles[order] = new Puzzle(image.getInt(at), itemName(image.getInt(at + 4)), itemName(image.getInt(at + 8)),
+                    itemName(image.getInt(at + 12)), itemName(image.getInt(at + 16)), string(image.getInt(at + 20)),
+                    new PuzzleText(text[0], text[1], text[2], text[3], text[4], text[5], text[6], text[7], text[8], text[9]));
+            puzzleOrderByRoom.put(puzzles[order].getRoomId(), order);
+            rewards[order] = puzzles[order].getReward();
+        }
+        winItems = Inventory.mask(rewards);
+
+        map = new Map(width, height);
+        for (int room = 0; room < roomCount; room++) {
+            int at = roomsOffset + room * ROOM_BYTES;
+            map.placeRoom(image.getInt(at + 16), image.getInt(at + 20), (char) image.getInt(at + 24));
+        }
+        // The legend is only shown with the whole map, so a world too big for that does not pay for one.
+        if (map.fitsInView()) {
+            for (int room = 0; room < roomCount; room++) {
+                int at = roomsOffset + room * ROOM_BYTES;
+                map.addLegend((char) image.getInt(at + 24), string(image.getInt(at)));
+            }
+        }
+        features = new ImageFeatures();
+        routes = new RouteTable(this, width, height);
+    }
+
+    private String string(int ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[image.getInt(ref)];
+        image.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The string's bytes left in the mapping, for text that is only ever printed.
+    private EncodedText text(int ref) {
+        return ref == NO_STRING ? null : new EncodedText(image.slice(ref + 4, image.getInt(ref)));
+    }
+
+    private String itemName(int item) {
+        return ItemRegistry.name(itemIds[item]);
+    }
+
+    private int localItem(int itemId) {
+        return itemId >= 0 && itemId < localItems.length ? localItems[itemId] : -1;
+    }
+
+    private int[] list(int offset) {
+        int[] values = new int[image.getInt(offset)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = image.getInt(offset + 4 + i * 4);
+        }
+        return values;
+    }
+
+    private String lowerName(int entry) {
+        return string(image.getInt(namesOffset + entry * NAME_BYTES));
+    }
+
+    @Override
+    public String getFirstObjective() {
+        return firstObjective;
+    }
+
+    @Override
+    public long getStartingPosition() {
+        return startingPosition;
+    }
+
+    @Override
+    public int getInventoryCapacity() {
+        return inventoryCapacity;
+    }
+
+    @Override
+    public Map getMap() {
+        return map;
+    }
+
+    @Override
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    @Override
+    public Room getRoom(int roomIndex) {
+        Room room = rooms.get(roomIndex);
+        if (room == null) {
+            int at = roomsOffset + roomIndex * ROOM_BYTES;
+            room = new Room(roomIndex, string(image.getInt(at)), text(image.getInt(at + 4)), (char) image.getInt(at + 24),
+                    new Position(image.getInt(at + 16), image.getInt(at + 20)));
+            if (!rooms.compareAndSet(roomIndex, null, room)) {
+                room = rooms.get(roomIndex);
+            }
+        }
+        return room;
+    }
+
+    @Override
+    public Room getRoomAtPosition(long pos) {
+        if (!isValidPosition(pos)) {
+            return null;
+        }
+        for (int slot = RoomIndex.hash(pos) & positionMask; ; slot = (slot + 1) & positionMask) {
+            int at = positionsOffset + slot * POSITION_BYTES;
+            int room = image.getInt(at + 8);
+            if (room == RoomIndex.NO_ROOM) {
+                return null;
+            }
+            if (image.getLong(at) == pos) {
+                return getRoom(room);
+            }
+        }
+    }
+
+    @Override
+    public boolean isValidPosition(long pos) {
+        int x = Coordinates.x(pos);
+        int y = Coordinates.y(pos);
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    @Override
+    public RouteTable getRoutes() {
+        return routes;
+    }
+
+    // Binary search over the sorted names: an exact match, else the only name with this prefix.
+    @Override
+    public Room findRoom(String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+        int low = 0;
+        int high = roomCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lowerName(middle).compareTo(name) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == roomCount || !lowerName(low).startsWith(name)) {
+            return null;
+        }
+        if (!lowerName(low).equals(name) && low + 1 < roomCount && lowerName(low + 1).startsWith(name)) {
+            return null;
+        }
+        return getRoom(image.getInt(namesOffset + low * NAME_BYTES + 4));
+    }
+
+    @Override
+    public Features getFeatures() {
+        return features;
+    }
+
+    @Override
+    public int[] getRoomsWithItem(int itemId) {
+        int item = localItem(itemId);
+        return item < 0 ? new int[0] : list(image.getInt(itemsOffset + item * ITEM_BYTES + 12));
+    }
+
+    @Override
+    public int getPuzzleCount() {
+        return puzzles.length;
+    }
+
+    @Override
+    public Puzzle getPuzzle(int order) {
+        return puzzles[order];
+    }
+
+    @Override
+    public int getPuzzleOrder(Puzzle puzzle) {
+        Integer order = puzzleOrderByRoom.get(puzzle.getRoomId());
+        return order == null || puzzles[order] != puzzle ? -1 : order;
+    }
+
+    @Override
+    public Puzzle getPuzzleForRoom(int roomIndex) {
+        Integer order = puzzleOrderByRoom.get(roomIndex);
+        return order == null ? null : puzzles[order];
+    }
+
+    @Override
+    public Puzzle getPreviousPuzzle(Puzzle puzzle) {
+        int order = getPuzzleOrder(puzzle);
+        return order > 0 ? puzzles[order - 1] : null;
+    }
+
+    @Override
+    public long[] getWinItems() {
+        return winItems;
+    }
+
+    // Reads each room's feature list straight out of the image.
+    private final class ImageFeatures implements Features {
+
+        private int featuresAt(int roomIndex) {
+            return image.getInt(roomsOffset + roomIndex * ROOM_BYTES + 12);
+        }
+
+        @Override
+        public boolean hasFeature(int roomIndex, int featureId) {
+            int item = localItem(featureId);
+            int at = featuresAt(roomIndex);
+            for (int i = image.getInt(at); item >= 0 && i > 0; i--) {
+                if (image.getInt(at + i * 4) == item) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getFeatureCount(int roomIndex) {
+            return image.getInt(featuresAt(roomIndex));
+        }
+
+        @Override
+        public int getFeature(int roomIndex, int featureIndex) {
+            return itemIds[image.getInt(featuresAt(roomIndex) + 4 + featureIndex * 4)];
+        }
+
+        @Override
+        public String getListing(int roomIndex) {
+            return string(image.getInt(roomsOffset + roomIndex * ROOM_BYTES + 8));
+        }
+
+        @Override
+        public CharSequence getDescription(int featureId) {
+            int item = localItem(featureId);
+            return item < 0 ? null : text(image.getInt(itemsOffset + item * ITEM_BYTES + 4));
+        }
+
+        @Override
+        public boolean isCollectible(int itemId) {
+            int item = localItem(itemId);
+            return item >= 0 && image.getInt(itemsOffset + item * ITEM_BYTES + 8) != 0;
+        }
+    }
+}
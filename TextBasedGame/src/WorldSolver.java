@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Proves a world can be won by searching the game states reachable from the
+ * start. Every move is played through a real GameSession restored from a
+ * snapshot, so the search follows exactly the rules the game enforces. A
+ * state is keyed by position, solved puzzles and the set of items held.
+ *
+ * The search is breadth-first over whole commands: goto a room, collect an
+ * item, or look at a puzzle's trigger and answer it. Only puzzles whose
+ * predecessor is solved can be attempted, so only their rooms and the items
+ * they still need are worth going to. Items never vanish from rooms and rooms
+ * only get easier to reach, so putting off other pick-ups loses no wins; the
+ * plan found is the shortest among those that collect items when next needed.
+ *
+ * Each level's states are expanded in parallel on a fork-join pool and then
+ * deduplicated in order, so the reported plan does not depend on scheduling.
+ */
+public class WorldSolver {
+    private static final OutputSink DISCARD = text -> { };
+    private static final int EXPAND_THRESHOLD = 16;
+
+    private final World world;
+    private final ForkJoinPool pool;
+
+    public WorldSolver(World world, ForkJoinPool pool) {
+        this.world = world;
+        this.pool = pool;
+    }
+
+    public Result solve() {
+        long started = System.nanoTime();
+        GameSession start = new GameSession(world, DISCARD);
+        Node root = new Node(encode(start), null, null, key(start), false);
+        List<Node> frontier = List.of(root);
+        HashSet<StateKey> visited = new HashSet<>();
+        visited.add(root.key);
+        long explored = 1;
+
+        while (!frontier.isEmpty()) {
+            List<List<Node>> children = new ArrayList<>(frontier.size());
+            for (int i = 0; i < frontier.size(); i++) {
+                children.add(null);
+            }
+            pool.invoke(new Expand(frontier, children, 0, frontier.size()));
+
+            List<Node> next = new ArrayList<>();
+            for (List<Node> expanded : children) {
+                for (Node child : expanded) {
+                    if (child.won) {
+                        return new Result(child.commands(), explored, System.nanoTime() - started);
+                    }
+                    if (visited.add(child.key)) {
+                        next.add(child);
+                        explored++;
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return new Result(null, explored, System.nanoTime() - started);
+    }
+
+    private List<Node> expand(Node node) {
+        GameSession session = decode(node.snapshot);
+        List<Node> children = new ArrayList<>();
+        int here = world.getRoomIndex(world.getRoomAtPosition(session.getPosition()));
+        PersistentBitSet solved = session.getSolvedPuzzles();
+        Inventory inventory = session.getInventory();
+
+        TreeSet<Integer> targets = new TreeSet<>();
+        for (int order = 0; order < world.getPuzzleCount(); order++) {
+            Puzzle puzzle = world.getPuzzle(order);
+            Puzzle previous = world.getPreviousPuzzle(puzzle);
+            if (solved.get(puzzle.getRoomId()) || (previous != null && !solved.get(previous.getRoomId()))) {
+                continue;
+            }
+
+            targets.add(puzzle.getRoomId());
+            for (int item : new int[] {puzzle.getKeyItem(), puzzle.getPartItem()}) {
+                if (inventory.contains(item)) {
+                    continue;
+                }
+                for (int room : world.getRoomsWithItem(item)) {
+                    targets.add(room);
+                    if (room == here) {
+                        play(node, children, "collect " + ItemRegistry.name(item));
+                    }
+                }
+            }
+            if (puzzle.getRoomId() == here) {
+                play(node, children, "look " + ItemRegistry.name(puzzle.getTrigger()), puzzle.getAnswer());
+            }
+        }
+
+        for (int room : targets) {
+            if (room != here) {
+                play(node, children, "goto " + world.getRoom(room).getName().toLowerCase());
+            }
+        }
+        return children;
+    }
+
+    private void play(Node parent, List<Node> children, String... lines) {
+        GameSession session = decode(parent.snapshot);
+        for (String line : lines) {
+            session.processLine(line);
+        }
+        if (!session.isRunning()) {
+            children.add(new Node(null, parent, lines, null, true));
+        } else if (!session.isAwaitingAnswer()) {
+            children.add(new Node(encode(session), parent, lines, key(session), false));
+        }
+    }
+
+    private GameSession decode(byte[] snapshot) {
+        return GameSession.readSnapshot(world, ByteBuffer.wrap(snapshot), DISCARD);
+    }
+
+    private byte[] encode(GameSession session) {
+        return SessionSnapshot.toBytes(session, world);
+    }
+
+    // Position, solved puzzle rooms and held item ids in order; score and visited rooms do not affect winning.
+    private StateKey key(GameSession session) {
+        Inventory inventory = session.getInventory();
+        PersistentBitSet solved = session.getSolvedPuzzles();
+        long[] parts = new long[2 + solved.cardinality() + inventory.size()];
+        parts[0] = session.getPosition();
+        parts[1] = solved.cardinality();
+        int[] next = {2};
+        solved.forEach(room -> parts[next[0]++] = room);
+        for (int slot = 0; slot < inventory.size(); slot++) {
+            parts[next[0]++] = inventory.getItem(slot);
+        }
+        Arrays.sort(parts, 2 + solved.cardinality(), parts.length);
+        return new StateKey(parts);
+    }
+
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> frontier;
+        private final List<List<Node>> children;
+        private final int from;
+        private final int to;
+
+        Expand(List<Node> frontier, List<List<Node>> children, int from, int to) {
+            this.frontier = frontier;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= EXPAND_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    children.set(i, expand(frontier.get(i)));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Expand(frontier, children, from, middle), new Expand(frontier, children, middle, to));
+        }
+    }
+
+    private static final class Node {
+        private final byte[] snapshot;
+        private final Node parent;
+        private final String[] lines;
+        private final boolean won;
+        private final StateKey key;
+
+        Node(byte[] snapshot, Node parent, String[] lines, StateKey key, boolean won) {
+            this.snapshot = snapshot;
+            this.parent = parent;
+            this.lines = lines;
+            this.key = key;
+            this.won = won;
+        }
+
+        List<String> commands() {
+            List<String> commands = new ArrayList<>();
+            for (Node node = this; node.lines != null; node = node.parent) {
+                for (int i = node.lines.length - 1; i >= 0; i--) {
+                    commands.add(0, node.lines[i]);
+                }
+            }
+            return commands;
+        }
+    }
+
+    private static final class StateKey {
+        private final long[] parts;
+        private final int hash;
+
+        StateKey(long[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey && Arrays.equals(parts, ((StateKey) other).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public static final class Result {
+        private final List<String> commands;
+        private final long statesExplored;
+        private final long elapsedNanos;
+
+        Result(List<String> commands, long statesExplored, long elapsedNanos) {
+            this.commands = commands;
+            this.statesExplored = statesExplored;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean isSolvable() {
+            return commands != null;
+        }
+
+        // The winning commands, one per line as a player would type them, or null if there is no way to win.
+        public List<String> getCommands() {
+            return commands;
+        }
+
+        @Override
+        public String toString() {
+            String summary = String.format("%d states explored in %.1f ms", statesExplored, elapsedNanos / 1e6);
+            if (commands == null) {
+                return "No way to win this world (" + summary + ")";
+            }
+            return "Winnable in " + commands.size() + " commands (" + summary + "):\n" + String.join("\n", commands);
+        }
+    }
+
+    // Arguments: [threads] [seed [puzzles] | world image] to solve another world than the mansion.
+    public static void main(String[] args) throws IOException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        World world = World.MANSION;
+        if (args.length > 1 && !args[1].matches("-?\\d+")) {
+            world = new WorldImage(Path.of(args[1]));
+        } else if (args.length > 1) {
+            int puzzles = args.length > 2 ? Integer.parseInt(args[2]) : GeneratedWorld.DEFAULT_PUZZLES;
+            world = new GeneratedWorld(Long.parseLong(args[1]), puzzles);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.out.println(new WorldSolver(world, pool).solve());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}